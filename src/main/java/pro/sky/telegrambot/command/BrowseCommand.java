@@ -0,0 +1,146 @@
+package pro.sky.telegrambot.command;
+
+import com.pengrad.telegrambot.model.request.InlineKeyboardButton;
+import com.pengrad.telegrambot.model.request.InlineKeyboardMarkup;
+import com.pengrad.telegrambot.request.EditMessageText;
+import com.pengrad.telegrambot.request.SendMessage;
+import org.springframework.stereotype.Component;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreeLevel;
+import pro.sky.telegrambot.service.CategoryService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Команда для интерактивного просмотра дерева категорий.
+ * <p>
+ * Показывает один уровень дерева с кнопками inline-клавиатуры. Нажатие на кнопку раскрывает
+ * выбранную категорию, редактируя то же сообщение. За одно нажатие загружаются только дочерние
+ * категории одного узла. Данные кнопок имеют вид {@code browse:<id>:<смещение>},
+ * для корневого уровня вместо идентификатора указывается {@code root}.
+ */
+@Component
+public class BrowseCommand implements Command, CallbackHandler {
+
+    /**
+     * Максимальное количество кнопок категорий в одном сообщении.
+     */
+    static final int PAGE_SIZE = 20;
+
+    private static final String PREFIX = "browse";
+    private static final String ROOT = "root";
+
+    private final CategoryService categoryService;
+
+    public BrowseCommand(CategoryService categoryService) {
+        this.categoryService = categoryService;
+    }
+
+    /**
+     * Возвращает имя команды BROWSE.
+     *
+     * @return имя команды (BROWSE)
+     */
+    @Override
+    public NamesCommand getNameCommand() {
+        return NamesCommand.BROWSE;
+    }
+
+    /**
+     * Возвращает префикс данных кнопок интерактивного просмотра.
+     *
+     * @return префикс {@code browse}
+     */
+    @Override
+    public String getCallbackPrefix() {
+        return PREFIX;
+    }
+
+    /**
+     * Выполняет команду: отправляет сообщение с корневыми категориями.
+     *
+     * @param chatId    идентификатор чата для отправки сообщения
+     * @param arguments аргументы команды
+     * @return SendMessage с корневыми категориями или сообщением об ошибке
+     */
+    @Override
+    public SendMessage execute(Long chatId, List<String> arguments) {
+        if (arguments.size() != 1) {
+            return new SendMessage(chatId,
+                    "Неверный формат команды! Используйте: /browse");
+        }
+        try {
+            CategoryTreeLevel level = categoryService.viewLevel(null, 0, PAGE_SIZE);
+            if (level.childCount() == 0) {
+                return new SendMessage(chatId, "Ошибка: Дерево категорий пусто.");
+            }
+            return new SendMessage(chatId, text(level)).replyMarkup(keyboard(level));
+        } catch (Exception e) {
+            return new SendMessage(chatId,
+                    "Произошла непредвиденная ошибка при формировании дерева категорий.");
+        }
+    }
+
+    /**
+     * Раскрывает категорию из данных нажатой кнопки.
+     *
+     * @param chatId    идентификатор чата с сообщением
+     * @param messageId идентификатор сообщения с клавиатурой
+     * @param data      данные кнопки без префикса: идентификатор категории и смещение
+     * @return запрос на редактирование сообщения
+     */
+    @Override
+    public EditMessageText handleCallback(Long chatId, Integer messageId, String data) {
+        String[] parts = data.split(":");
+        try {
+            Long categoryId = ROOT.equals(parts[0]) ? null : Long.valueOf(parts[0]);
+            int offset = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            CategoryTreeLevel level = categoryService.viewLevel(categoryId, offset, PAGE_SIZE);
+            return new EditMessageText(chatId, messageId, text(level)).replyMarkup(keyboard(level));
+        } catch (CategoryNotFoundException e) {
+            return new EditMessageText(chatId, messageId, "Ошибка: " + e.getMessage())
+                    .replyMarkup(new InlineKeyboardMarkup(button("⬆ К корневым категориям", ROOT, 0)));
+        } catch (NumberFormatException e) {
+            return new EditMessageText(chatId, messageId, "Ошибка: неизвестная кнопка.");
+        }
+    }
+
+    private String text(CategoryTreeLevel level) {
+        if (level.categoryId() == null) {
+            return "Корневые категории: " + level.childCount();
+        }
+        if (level.childCount() == 0) {
+            return "Категория \"" + level.categoryName() + "\"\nПодкатегорий нет.";
+        }
+        return "Категория \"" + level.categoryName() + "\"\nПодкатегорий: " + level.childCount();
+    }
+
+    private InlineKeyboardMarkup keyboard(CategoryTreeLevel level) {
+        String current = level.categoryId() == null ? ROOT : level.categoryId().toString();
+        List<InlineKeyboardButton[]> rows = new ArrayList<>();
+        for (CategoryTreeLevel.Child child : level.children()) {
+            rows.add(new InlineKeyboardButton[]{
+                    button((child.hasChildren() ? "📁 " : "📄 ") + child.name(), String.valueOf(child.id()), 0)});
+        }
+        List<InlineKeyboardButton> navigation = new ArrayList<>();
+        if (level.offset() > 0) {
+            navigation.add(button("◀", current, Math.max(0, level.offset() - PAGE_SIZE)));
+        }
+        if (level.offset() + level.children().size() < level.childCount()) {
+            navigation.add(button("▶", current, level.offset() + PAGE_SIZE));
+        }
+        if (!navigation.isEmpty()) {
+            rows.add(navigation.toArray(new InlineKeyboardButton[0]));
+        }
+        if (level.categoryId() != null) {
+            String parent = level.parentId() == null ? ROOT : level.parentId().toString();
+            rows.add(new InlineKeyboardButton[]{button("⬆ Назад", parent, 0)});
+        }
+        return new InlineKeyboardMarkup(rows.toArray(new InlineKeyboardButton[0][]));
+    }
+
+    private static InlineKeyboardButton button(String text, String categoryId, int offset) {
+        return new InlineKeyboardButton(text).callbackData(PREFIX + ":" + categoryId + ":" + offset);
+    }
+}
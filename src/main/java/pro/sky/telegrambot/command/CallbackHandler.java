@@ -0,0 +1,27 @@
+package pro.sky.telegrambot.command;
+
+import com.pengrad.telegrambot.request.EditMessageText;
+
+/**
+ * Интерфейс обработчика нажатий на кнопки inline-клавиатуры.
+ * Обработчик выбирается по префиксу данных кнопки (callback data) до первого двоеточия.
+ */
+public interface CallbackHandler {
+
+    /**
+     * Возвращает префикс данных кнопок, которые обрабатывает обработчик.
+     *
+     * @return префикс данных кнопок без двоеточия
+     */
+    String getCallbackPrefix();
+
+    /**
+     * Обрабатывает нажатие на кнопку и формирует новое содержимое исходного сообщения.
+     *
+     * @param chatId    идентификатор чата с сообщением
+     * @param messageId идентификатор сообщения с клавиатурой
+     * @param data      данные нажатой кнопки без префикса
+     * @return запрос на редактирование сообщения
+     */
+    EditMessageText handleCallback(Long chatId, Integer messageId, String data);
+}
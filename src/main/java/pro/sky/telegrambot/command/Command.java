@@ -25,4 +25,15 @@ public interface Command {
      * @return элемент перечисления NamesCommand, соответствующий данной команде
      */
     NamesCommand getNameCommand();
+
+    /**
+     * Проверяет, можно ли указать аргумент команды без кавычек.
+     * По умолчанию все аргументы, кроме имени команды, должны быть заключены в кавычки.
+     *
+     * @param argument аргумент команды без кавычек
+     * @return true, если команда принимает такой аргумент без кавычек
+     */
+    default boolean acceptsUnquoted(String argument) {
+        return false;
+    }
 }
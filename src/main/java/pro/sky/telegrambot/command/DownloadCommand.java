@@ -1,18 +1,21 @@
 package pro.sky.telegrambot.command;
 
-
-import com.pengrad.telegrambot.TelegramBot;
 import com.pengrad.telegrambot.request.SendDocument;
 import com.pengrad.telegrambot.request.SendMessage;
 import com.pengrad.telegrambot.response.SendResponse;
 import org.springframework.stereotype.Component;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
 import pro.sky.telegrambot.exception.ErrorSendingFileException;
-import pro.sky.telegrambot.service.ExcelProcessingService;
-
+import pro.sky.telegrambot.model.ExportArtifact;
+import pro.sky.telegrambot.service.CategoryExportService;
+import pro.sky.telegrambot.service.TelegramSender;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Команда для скачивания дерева категорий в виде Excel-файла.
@@ -23,13 +26,13 @@ public class DownloadCommand implements Command {
     private static final long MAX_FILE_SIZE = 50_000_000L;
     private static final String DEFAULT_FILENAME = "Categories.xlsx";
     private static final String DEFAULT_CAPTION = "Дерево категорий";
-    private final ExcelProcessingService excelProcessingService;
-    private final TelegramBot telegramBot;
+    private final CategoryExportService exportService;
+    private final TelegramSender telegramSender;
 
-    public DownloadCommand(ExcelProcessingService excelProcessingService,
-                           TelegramBot telegramBot) {
-        this.excelProcessingService = excelProcessingService;
-        this.telegramBot = telegramBot;
+    public DownloadCommand(CategoryExportService exportService,
+                           TelegramSender telegramSender) {
+        this.exportService = exportService;
+        this.telegramSender = telegramSender;
     }
 
     /**
@@ -87,29 +90,87 @@ public class DownloadCommand implements Command {
     }
 
     /**
-     * Генерирует и отправляет Excel-документ с деревом категорий.
+     * Ставит Excel-документ с деревом категорий в очередь отправки.
+     * Если документ текущей версии дерева уже отправлялся, он отправляется по идентификатору файла
+     * на серверах Telegram без повторного формирования и загрузки.
+     * Документ удерживается до получения ответа Telegram. Сообщения одного чата отправляются по порядку,
+     * поэтому ответ команды приходит пользователю после документа. Об ошибке, возникшей
+     * при самой отправке, пользователь узнает отдельным сообщением.
      *
      * @param chatId идентификатор чата для отправки
      * @throws IOException                  если произошла ошибка при работе с файлом
-     * @throws ErrorSendingFileException    если файл слишком большой или не может быть отправлен
+     * @throws ErrorSendingFileException    если файл слишком большой для отправки
      * @throws CategoryTreeIsEmptyException если дерево категорий пустое
      */
     private void sendExcelDocument(Long chatId) throws IOException, ErrorSendingFileException {
-        byte[] excelData = excelProcessingService.generateCategoriesExcel();
-
-        if (excelData.length > MAX_FILE_SIZE) {
-            throw new ErrorSendingFileException("Файл слишком большой для отправки");
+        CategoryExportService.Lease lease = exportService.acquireArtifact();
+        try {
+            ExportArtifact artifact = lease.artifact();
+            CompletableFuture<SendResponse> sent;
+            if (artifact.fileId() != null) {
+                sent = telegramSender.send(new SendDocument(chatId, artifact.fileId()).caption(DEFAULT_CAPTION))
+                        .thenCompose(response -> response.isOk()
+                                ? CompletableFuture.completedFuture(response)
+                                : uploadDocument(chatId, artifact.file()));
+            } else {
+                checkFileSize(artifact.file());
+                sent = uploadDocument(chatId, artifact.file());
+            }
+            sent.whenComplete((response, error) -> {
+                try {
+                    onDocumentSent(chatId, lease, response, error);
+                } finally {
+                    lease.close();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
         }
+    }
 
-        SendDocument request = new SendDocument(chatId, excelData)
+    /**
+     * Ставит в очередь загрузку файла документа.
+     *
+     * @param chatId идентификатор чата для отправки
+     * @param file   файл документа
+     * @return ответ Telegram на загрузку
+     */
+    private CompletableFuture<SendResponse> uploadDocument(Long chatId, Path file) {
+        try {
+            checkFileSize(file);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return telegramSender.send(new SendDocument(chatId, file.toFile())
                 .fileName(DEFAULT_FILENAME)
-                .caption(DEFAULT_CAPTION);
+                .caption(DEFAULT_CAPTION));
+    }
 
-        SendResponse response = telegramBot.execute(request);
+    private void checkFileSize(Path file) throws IOException {
+        if (Files.size(file) > MAX_FILE_SIZE) {
+            throw new ErrorSendingFileException("Файл слишком большой для отправки");
+        }
+    }
 
-        if (!response.isOk()) {
-            throw new ErrorSendingFileException(
-                    "Ошибка отправки файла: " + response.description());
+    /**
+     * Запоминает идентификатор загруженного файла или сообщает пользователю об ошибке отправки.
+     *
+     * @param chatId   идентификатор чата
+     * @param lease    аренда отправленного документа
+     * @param response ответ Telegram или null при ошибке
+     * @param error    ошибка отправки или null
+     */
+    private void onDocumentSent(Long chatId, CategoryExportService.Lease lease, SendResponse response,
+                                Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            telegramSender.send(new SendMessage(chatId, "Ошибка отправки документа: " + cause.getMessage()));
+        } else if (!response.isOk()) {
+            telegramSender.send(new SendMessage(chatId, "Ошибка отправки файла: " + response.description()));
+        } else if (response.message() != null && response.message().document() != null) {
+            lease.rememberFileId(response.message().document().fileId());
         }
     }
 }
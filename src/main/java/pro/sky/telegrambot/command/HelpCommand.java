@@ -22,7 +22,12 @@ public class HelpCommand implements Command {
             (кавычки обязательны в названиях!)
             
             🔹 *Просмотр дерева:*
-            /viewTree - отобразить всё дерево
+            /viewTree - отобразить дерево (первая страница)
+            /viewTree --page 2 - отобразить указанную страницу дерева
+            /viewTree "название элемента" [глубина] [страница] - отобразить поддерево элемента
+            (глубина 0 - без ограничения)
+            /browse - интерактивный просмотр дерева с кнопками
+            /path "название элемента" - путь к категории от корня
             
             🔹 *Удаление элемента:*
             /removeElement "название элемента" - удалить категорию
@@ -18,6 +18,10 @@ public enum NamesCommand {
 
     VIEW_TREE("/viewTree", "Отображение дерева"),
 
+    BROWSE("/browse", "Интерактивный просмотр дерева"),
+
+    PATH("/path", "Путь к категории от корня"),
+
     DOWNLOAD("/download", "Скачивание Excel документа с деревом категорий"),
 
     UPLOAD("/upload", "Парсинг Excel документа с деревом категорий"),
@@ -0,0 +1,56 @@
+package pro.sky.telegrambot.command;
+
+import com.pengrad.telegrambot.request.SendMessage;
+import org.springframework.stereotype.Component;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.service.CategoryService;
+
+import java.util.List;
+
+/**
+ * Команда для отображения пути от корня дерева до категории.
+ */
+@Component
+public class PathCommand implements Command {
+
+    private final CategoryService categoryService;
+
+    public PathCommand(CategoryService categoryService) {
+        this.categoryService = categoryService;
+    }
+
+    /**
+     * Возвращает имя команды PATH.
+     *
+     * @return имя команды (PATH)
+     */
+    @Override
+    public NamesCommand getNameCommand() {
+        return NamesCommand.PATH;
+    }
+
+    /**
+     * Выполняет команду отображения пути к категории.
+     *
+     * @param chatId    идентификатор чата для отправки сообщения
+     * @param arguments аргументы команды
+     * @return SendMessage с путем к категории или сообщением об ошибке
+     */
+    @Override
+    public SendMessage execute(Long chatId, List<String> arguments) {
+        if (arguments.size() != 2) {
+            return new SendMessage(chatId,
+                    "Неверный формат команды! Используйте: /path \"название элемента\"");
+        }
+        try {
+            List<String> path = categoryService.findPath(arguments.get(1));
+            return new SendMessage(chatId, "Путь к категории \"" + arguments.get(1) + "\":\n" +
+                    String.join(" → ", path));
+        } catch (CategoryNotFoundException e) {
+            return new SendMessage(chatId, "Ошибка: " + e.getMessage());
+        } catch (Exception e) {
+            return new SendMessage(chatId,
+                    "Произошла непредвиденная ошибка при поиске пути к категории.");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package pro.sky.telegrambot.command;
 import com.pengrad.telegrambot.request.SendMessage;
 import org.springframework.stereotype.Component;
 import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.model.CategoryRemoval;
 import pro.sky.telegrambot.service.CategoryService;
 
 import java.util.List;
@@ -48,7 +49,16 @@ public class RemoveElementCommand implements Command {
                             " Используйте: /removeElement \"название элемента\"");
         }
         try {
-            categoryService.removeCategory(arguments.get(1));
+            CategoryRemoval removal = categoryService.removeCategory(arguments.get(1));
+            if (removal.background()) {
+                return new SendMessage(chatId, "Элемент \"" + arguments.get(1) +
+                        "\" удален из дерева. Вложенные категории (" + removal.count() +
+                        ") удаляются в фоновом режиме.");
+            }
+            if (removal.count() > 1) {
+                return new SendMessage(chatId, "Элемент \"" + arguments.get(1) +
+                        "\" удален вместе с вложенными категориями (всего удалено: " + removal.count() + ").");
+            }
             return new SendMessage(chatId,
                     "Элемент \"" + arguments.get(1) + "\" удален.");
         } catch (CategoryNotFoundException e) {
@@ -8,16 +8,12 @@ import com.pengrad.telegrambot.request.SendMessage;
 import org.springframework.stereotype.Component;
 import pro.sky.telegrambot.exception.InvalidExcelFormatException;
 import pro.sky.telegrambot.model.Category;
-import pro.sky.telegrambot.repository.CategoryRepository;
+import pro.sky.telegrambot.service.CategoryImportService;
 import pro.sky.telegrambot.service.ExcelProcessingService;
+import pro.sky.telegrambot.service.TelegramSender;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 /**
  * Команда для загрузки категорий из Excel-файла.
@@ -27,13 +23,17 @@ public class UploadCommand implements Command {
 
     private final ExcelProcessingService excelProcessingService;
     private final TelegramBot telegramBot;
-    private final CategoryRepository categoryRepository;
+    private final CategoryImportService categoryImportService;
+    private final TelegramSender telegramSender;
 
     public UploadCommand(ExcelProcessingService workingWithExcelService,
-                         TelegramBot telegramBot, CategoryRepository categoryRepository) {
+                         TelegramBot telegramBot,
+                         CategoryImportService categoryImportService,
+                         TelegramSender telegramSender) {
         this.excelProcessingService = workingWithExcelService;
         this.telegramBot = telegramBot;
-        this.categoryRepository = categoryRepository;
+        this.categoryImportService = categoryImportService;
+        this.telegramSender = telegramSender;
     }
 
     /**
@@ -65,6 +65,7 @@ public class UploadCommand implements Command {
 
     /**
      * Обрабатывает полученный Excel-документ с категориями.
+     * Сообщение о результате ставится в очередь отправки без ожидания ответа Telegram.
      *
      * @param chatId  идентификатор чата
      * @param message сообщение с прикрепленным файлом
@@ -74,15 +75,15 @@ public class UploadCommand implements Command {
             byte[] fileContent = downloadFile(message);
             List<Category> categories = excelProcessingService.parseExcel(fileContent);
             saveCategories(categories);
-            telegramBot.execute(new SendMessage(chatId, "Таблица с категориями успешно загружена!"));
+            telegramSender.send(new SendMessage(chatId, "Таблица с категориями успешно загружена!"));
         } catch (IOException e) {
-            telegramBot.execute(new SendMessage(chatId,
+            telegramSender.send(new SendMessage(chatId,
                     "Ошибка чтения файла: " + e.getMessage()));
         } catch (InvalidExcelFormatException e) {
-            telegramBot.execute(new SendMessage(chatId,
+            telegramSender.send(new SendMessage(chatId,
                     "Неверный формат Excel-файла: " + e.getMessage()));
         } catch (Exception e) {
-            telegramBot.execute(new SendMessage(chatId,
+            telegramSender.send(new SendMessage(chatId,
                     "Ошибка при загрузке категорий: " + e.getMessage()));
         }
     }
@@ -106,58 +107,6 @@ public class UploadCommand implements Command {
      * @param newCategories список новых категорий для сохранения
      */
     public void saveCategories(List<Category> newCategories) {
-//    Сначала находим существующие категории по именам
-        List<String> categoryNames = newCategories.stream()
-                .map(Category::getName)
-                .collect(Collectors.toList());
-        Map<String, Category> existingCategories = categoryRepository.findByNameIn(categoryNames)
-                .stream()
-                .collect(Collectors.toMap(Category::getName, Function.identity()));
-//    Подготовка данных для сохранения
-        List<Category> categoriesToSave = new ArrayList<>();
-        Map<Long, Category> tempMap = new HashMap<>();
-        Map<String, Category> nameToCategoryMap = new HashMap<>();
-//    Обработка новых категорий с проверкой дубликатов
-        for (Category newCat : newCategories) {
-            //Проверяем, существует ли категория с таким именем
-            if (existingCategories.containsKey(newCat.getName())) {
-                // Если существует, используем существующую
-                Category existingCat = existingCategories.get(newCat.getName());
-                tempMap.put(newCat.getId(), existingCat);
-                nameToCategoryMap.put(existingCat.getName(), existingCat);
-                continue;
-            }
-            // Если не существует, создаем новую
-            Category categoryToSave = new Category();
-            categoryToSave.setName(newCat.getName());
-            categoryToSave.setParent(null); // Временно null
-            categoriesToSave.add(categoryToSave);
-            tempMap.put(newCat.getId(), categoryToSave);
-            nameToCategoryMap.put(newCat.getName(), categoryToSave);
-        }
-//    Сохраняем новые категории (без дубликатов)
-        if (!categoriesToSave.isEmpty()) {
-            categoryRepository.saveAll(categoriesToSave);
-        }
-//    Устанавливаем родительские связи
-        for (Category newCat : newCategories) {
-            Category savedCat = tempMap.get(newCat.getId());
-
-            if (newCat.getParent() != null) {
-                Category parent = tempMap.get(newCat.getParent().getId());
-                if (parent != null) {
-                    savedCat.setParent(parent);
-                }
-            }
-        }
-//    Сохраняем обновленные категории
-        categoryRepository.saveAll(nameToCategoryMap.values());
+        categoryImportService.importCategories(newCategories);
     }
 }
-
-
-
-
-
-
-
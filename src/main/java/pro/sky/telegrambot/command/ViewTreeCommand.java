@@ -2,17 +2,29 @@ package pro.sky.telegrambot.command;
 
 import com.pengrad.telegrambot.request.SendMessage;
 import org.springframework.stereotype.Component;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
+import pro.sky.telegrambot.exception.TreePageNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreePage;
 import pro.sky.telegrambot.service.CategoryService;
+import pro.sky.telegrambot.service.CategoryTreeRenderer;
 
 import java.util.List;
 
 /**
  * Команда для отображения иерархического дерева категорий.
+ * Дерево выводится постранично, чтобы каждая страница умещалась в одно сообщение Telegram.
+ * Можно вывести только поддерево одной категории с ограничением по глубине.
  */
 @Component
 public class ViewTreeCommand implements Command {
 
+    /**
+     * Параметр, после которого указывается номер страницы всего дерева.
+     * Отличает номер страницы от названия категории, состоящего из цифр.
+     */
+    static final String PAGE_OPTION = "--page";
+
     private final CategoryService categoryService;
 
     public ViewTreeCommand(CategoryService categoryService) {
@@ -29,27 +41,112 @@ public class ViewTreeCommand implements Command {
         return NamesCommand.VIEW_TREE;
     }
 
+    /**
+     * Разрешает указывать без кавычек параметр {@code --page}, глубину и номер страницы.
+     *
+     * @param argument аргумент команды без кавычек
+     * @return true для {@code --page} и чисел
+     */
+    @Override
+    public boolean acceptsUnquoted(String argument) {
+        return PAGE_OPTION.equals(argument) || argument.matches("\\d+");
+    }
+
     /**
      * Выполняет команду отображения дерева категорий.
+     * Поддерживаемые формы:
+     * <ul>
+     *   <li>{@code /viewTree [--page номер страницы]} - всё дерево</li>
+     *   <li>{@code /viewTree "название" [глубина] [номер страницы]} - поддерево категории,
+     *   глубина 0 или её отсутствие означает вывод без ограничения</li>
+     * </ul>
      *
      * @param chatId    идентификатор чата для отправки сообщения
      * @param arguments аргументы команды
-     * @return SendMessage с деревом категорий или сообщением об ошибке
+     * @return SendMessage со страницей дерева категорий или сообщением об ошибке
      */
     @Override
     public SendMessage execute(Long chatId, List<String> arguments) {
-        if (arguments.size() > 1) {
+        if (arguments.size() == 1) {
+            return viewTree(chatId, 1);
+        }
+        if (PAGE_OPTION.equals(arguments.get(1))) {
+            if (arguments.size() != 3 || !isPageNumber(arguments.get(2))) {
+                return new SendMessage(chatId,
+                        "Неверный формат команды! Используйте: /viewTree " + PAGE_OPTION + " номер страницы");
+            }
+            return viewTree(chatId, Integer.parseInt(arguments.get(2)));
+        }
+        if (arguments.size() > 4) {
+            return new SendMessage(chatId,
+                    "Неверный формат команды! Используйте: /viewTree [" + PAGE_OPTION + " номер страницы] " +
+                            "или /viewTree \"название элемента\" [глубина] [номер страницы]");
+        }
+        if (arguments.size() > 2 && !arguments.get(2).matches("\\d{1,9}")) {
             return new SendMessage(chatId,
-                    "Неверный формат команды! Используйте: /viewTree");
+                    "Неверный формат команды! Глубина должна быть неотрицательным числом: " +
+                            "/viewTree \"название элемента\" [глубина] [номер страницы]");
         }
+        if (arguments.size() > 3 && !isPageNumber(arguments.get(3))) {
+            return new SendMessage(chatId,
+                    "Неверный формат команды! Номер страницы должен быть положительным числом: " +
+                            "/viewTree \"название элемента\" [глубина] [номер страницы]");
+        }
+        String name = arguments.get(1);
+        int depth = arguments.size() > 2 ? Integer.parseInt(arguments.get(2)) : 0;
+        int pageNumber = arguments.size() > 3 ? Integer.parseInt(arguments.get(3)) : 1;
         try {
+            CategoryTreePage page = categoryService.viewSubtree(name,
+                    depth == 0 ? CategoryTreeRenderer.UNLIMITED_DEPTH : depth, pageNumber);
+            return new SendMessage(chatId, format("Поддерево категории \"" + name + "\"", page,
+                    "/viewTree \"" + name + "\" " + depth + " "));
+        } catch (CategoryNotFoundException | TreePageNotFoundException e) {
+            return new SendMessage(chatId, "Ошибка: " + e.getMessage());
+        } catch (Exception e) {
             return new SendMessage(chatId,
-                    categoryService.viewTree());
-        } catch (CategoryTreeIsEmptyException e) {
+                    "Произошла непредвиденная ошибка при формировании дерева категорий.");
+        }
+    }
+
+    /**
+     * Формирует сообщение со страницей всего дерева категорий.
+     *
+     * @param chatId     идентификатор чата для отправки сообщения
+     * @param pageNumber номер страницы, начиная с 1
+     * @return SendMessage со страницей дерева или сообщением об ошибке
+     */
+    private SendMessage viewTree(Long chatId, int pageNumber) {
+        try {
+            return new SendMessage(chatId, format("Дерево категорий",
+                    categoryService.viewTree(pageNumber), "/viewTree " + PAGE_OPTION + " "));
+        } catch (CategoryTreeIsEmptyException | TreePageNotFoundException e) {
             return new SendMessage(chatId, "Ошибка: " + e.getMessage());
         } catch (Exception e) {
             return new SendMessage(chatId,
                     "Произошла непредвиденная ошибка при формировании дерева категорий.");
         }
     }
+
+    private static boolean isPageNumber(String argument) {
+        return argument.matches("[1-9]\\d{0,8}");
+    }
+
+    /**
+     * Добавляет к странице заголовок и подсказку о следующей странице.
+     * Если дерево умещается на одной странице, выводится без номера страницы.
+     *
+     * @param title       заголовок дерева
+     * @param page        страница дерева
+     * @param nextCommand команда без номера страницы для перехода к следующей странице
+     */
+    private String format(String title, CategoryTreePage page, String nextCommand) {
+        if (page.number() == 1 && !page.hasNext()) {
+            return title + ":\n" + page.text();
+        }
+        String text = title + " (страница " + page.number() + "):\n" + page.text();
+        if (page.hasNext()) {
+            text += "\nСледующая страница: " + nextCommand + (page.number() + 1);
+        }
+        return text;
+    }
 }
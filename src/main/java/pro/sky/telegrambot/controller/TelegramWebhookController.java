@@ -0,0 +1,116 @@
+package pro.sky.telegrambot.controller;
+
+import com.pengrad.telegrambot.BotUtils;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.Update;
+import com.pengrad.telegrambot.request.SetWebhook;
+import com.pengrad.telegrambot.response.BaseResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import pro.sky.telegrambot.service.UpdateDispatcher;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Прием обновлений Telegram через webhook ({@code telegram.ingestion.mode=webhook}).
+ * <p>
+ * Telegram отправляет каждое обновление POST-запросом на {@code telegram.webhook.path}. Запрос принимается,
+ * только если заголовок {@value #SECRET_HEADER} совпадает с {@code telegram.webhook.secret}. Обновление
+ * передается на параллельную обработку, и ответ возвращается сразу, не дожидаясь выполнения команды.
+ * Webhook рассчитан на один экземпляр бота: снимок дерева, кеши и порядок обработки обновлений одного чата
+ * хранятся в памяти процесса и не согласуются между экземплярами.
+ * Если задан {@code telegram.webhook.url}, при запуске webhook регистрируется в Telegram.
+ */
+@RestController
+@ConditionalOnProperty(name = "telegram.ingestion.mode", havingValue = "webhook")
+public class TelegramWebhookController {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final TelegramBot telegramBot;
+    private final UpdateDispatcher updateDispatcher;
+    private final byte[] secret;
+    private final String url;
+    private final Logger logger = LoggerFactory.getLogger(TelegramWebhookController.class);
+
+    public TelegramWebhookController(TelegramBot telegramBot,
+                                     UpdateDispatcher updateDispatcher,
+                                     @Value("${telegram.webhook.secret:}") String secret,
+                                     @Value("${telegram.webhook.url:}") String url) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("Для приема обновлений через webhook нужно задать telegram.webhook.secret");
+        }
+        this.telegramBot = telegramBot;
+        this.updateDispatcher = updateDispatcher;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.url = url;
+    }
+
+    /**
+     * Регистрирует webhook в Telegram, если указан его внешний адрес.
+     */
+    @PostConstruct
+    public void init() {
+        if (url.isBlank()) {
+            return;
+        }
+        BaseResponse response = telegramBot.execute(new SecretSetWebhook(new String(secret, StandardCharsets.UTF_8))
+                .url(url));
+        if (response.isOk()) {
+            logger.info("Webhook зарегистрирован: {}", url);
+        } else {
+            logger.error("Не удалось зарегистрировать webhook {}: {}", url, response.description());
+        }
+    }
+
+    /**
+     * Принимает обновление от Telegram.
+     *
+     * @param token секретный токен из заголовка запроса
+     * @param body  обновление в формате JSON
+     * @return 200 после постановки обновления в очередь, 401 при неверном токене,
+     * 400 при некорректном обновлении
+     */
+    @PostMapping(path = "${telegram.webhook.path:/telegram/webhook}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> receiveUpdate(@RequestHeader(value = SECRET_HEADER, required = false) String token,
+                                              @RequestBody String body) {
+        if (token == null || !MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        Update update;
+        try {
+            update = BotUtils.parseUpdate(body);
+        } catch (RuntimeException e) {
+            logger.warn("Получено некорректное обновление: {}", body, e);
+            return ResponseEntity.badRequest().build();
+        }
+        if (update == null || update.updateId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        logger.info("Processing update: {}", update);
+        updateDispatcher.dispatch(update);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Запрос регистрации webhook с секретным токеном, который Telegram передает в заголовке
+     * {@value #SECRET_HEADER} каждого запроса.
+     */
+    private static final class SecretSetWebhook extends SetWebhook {
+
+        private SecretSetWebhook(String secretToken) {
+            add("secret_token", secretToken);
+        }
+    }
+}
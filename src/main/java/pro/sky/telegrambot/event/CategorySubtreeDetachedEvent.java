@@ -0,0 +1,45 @@
+package pro.sky.telegrambot.event;
+
+/**
+ * Событие отсоединения ветви категорий от дерева для фонового удаления.
+ * Публикуется после того, как корень ветви помечен отсоединенным,
+ * и обрабатывается после фиксации транзакции.
+ */
+public class CategorySubtreeDetachedEvent {
+
+    private final long rootId;
+    private final String categoryName;
+    private final int estimatedSize;
+
+    /**
+     * @param rootId        идентификатор корня отсоединенной ветви
+     * @param categoryName  исходное название корня ветви
+     * @param estimatedSize оценка количества категорий в ветви
+     */
+    public CategorySubtreeDetachedEvent(long rootId, String categoryName, int estimatedSize) {
+        this.rootId = rootId;
+        this.categoryName = categoryName;
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * @return идентификатор корня отсоединенной ветви
+     */
+    public long getRootId() {
+        return rootId;
+    }
+
+    /**
+     * @return исходное название корня ветви
+     */
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    /**
+     * @return оценка количества категорий в ветви
+     */
+    public int getEstimatedSize() {
+        return estimatedSize;
+    }
+}
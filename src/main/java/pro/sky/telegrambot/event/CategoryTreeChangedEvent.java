@@ -0,0 +1,35 @@
+package pro.sky.telegrambot.event;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Событие изменения дерева категорий.
+ * Публикуется каждой операцией, изменяющей таблицу category_tree,
+ * и обрабатывается после фиксации транзакции.
+ */
+public class CategoryTreeChangedEvent {
+
+    private final Set<String> categoryNames;
+
+    /**
+     * @param categoryNames названия добавленных, удаленных или перемещенных категорий
+     */
+    public CategoryTreeChangedEvent(Collection<String> categoryNames) {
+        this.categoryNames = Set.copyOf(categoryNames);
+    }
+
+    /**
+     * @param categoryName название добавленной, удаленной или перемещенной категории
+     */
+    public CategoryTreeChangedEvent(String categoryName) {
+        this(Set.of(categoryName));
+    }
+
+    /**
+     * @return названия измененных категорий
+     */
+    public Set<String> getCategoryNames() {
+        return categoryNames;
+    }
+}
@@ -0,0 +1,40 @@
+package pro.sky.telegrambot.event;
+
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+
+import java.util.Set;
+
+/**
+ * Событие публикации нового снимка дерева категорий.
+ * Позволяет производным кешам сбросить только те данные, которые затронуты изменением.
+ */
+public class CategoryTreeSnapshotUpdatedEvent {
+
+    private final CategoryTreeSnapshot previous;
+    private final CategoryTreeSnapshot current;
+    private final Set<String> changedNames;
+
+    /**
+     * @param previous     снимок, опубликованный до изменения, или null
+     * @param current      актуальный снимок
+     * @param changedNames названия измененных категорий; пустое множество означает, что изменения неизвестны
+     */
+    public CategoryTreeSnapshotUpdatedEvent(CategoryTreeSnapshot previous, CategoryTreeSnapshot current,
+                                            Set<String> changedNames) {
+        this.previous = previous;
+        this.current = current;
+        this.changedNames = changedNames;
+    }
+
+    public CategoryTreeSnapshot getPrevious() {
+        return previous;
+    }
+
+    public CategoryTreeSnapshot getCurrent() {
+        return current;
+    }
+
+    public Set<String> getChangedNames() {
+        return changedNames;
+    }
+}
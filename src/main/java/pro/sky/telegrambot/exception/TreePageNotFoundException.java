@@ -0,0 +1,9 @@
+package pro.sky.telegrambot.exception;
+/**
+ * Исключение, возникающее при запросе несуществующей страницы дерева категорий.
+ */
+public class TreePageNotFoundException extends RuntimeException {
+    public TreePageNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -5,27 +5,30 @@ import com.pengrad.telegrambot.UpdatesListener;
 import com.pengrad.telegrambot.model.Update;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import pro.sky.telegrambot.service.CommandService;
+import pro.sky.telegrambot.service.UpdateDispatcher;
 
 import javax.annotation.PostConstruct;
 import java.util.List;
 
 /**
  * Сервис обработки входящих обновлений Telegram бота.
+ * Получает обновления через long polling, используется по умолчанию ({@code telegram.ingestion.mode=polling}).
  */
 @Service
+@ConditionalOnProperty(name = "telegram.ingestion.mode", havingValue = "polling", matchIfMissing = true)
 public class TelegramBotUpdatesListener implements UpdatesListener {
 
-    private final CommandService commandService;
+    private final UpdateDispatcher updateDispatcher;
 
     private final Logger logger = LoggerFactory.getLogger(TelegramBotUpdatesListener.class);
 
     private final TelegramBot telegramBot;
 
-    public TelegramBotUpdatesListener(TelegramBot telegramBot, CommandService commandService) {
+    public TelegramBotUpdatesListener(TelegramBot telegramBot, UpdateDispatcher updateDispatcher) {
         this.telegramBot = telegramBot;
-        this.commandService = commandService;
+        this.updateDispatcher = updateDispatcher;
     }
 
     @PostConstruct
@@ -34,7 +37,8 @@ public class TelegramBotUpdatesListener implements UpdatesListener {
     }
 
     /**
-     * Обрабатывает список входящих обновлений.
+     * Передает список входящих обновлений на параллельную обработку.
+     * Обновления подтверждаются после постановки в очередь, не дожидаясь завершения обработки.
      *
      * @param updates список входящих обновлений от Telegram API
      * @return константа CONFIRMED_UPDATES_ALL, подтверждающая обработку всех обновлений
@@ -44,7 +48,7 @@ public class TelegramBotUpdatesListener implements UpdatesListener {
         updates.forEach(update -> {
             logger.info("Processing update: {}", update);
             if (update != null) {
-                commandService.processCommand(update);
+                updateDispatcher.dispatch(update);
             }
         });
         return UpdatesListener.CONFIRMED_UPDATES_ALL;
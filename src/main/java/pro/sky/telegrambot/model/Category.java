@@ -15,6 +15,12 @@ import java.util.List;
 @Table(name = "category_tree")
 public class Category {
 
+    /**
+     * Количество идентификаторов, выделяемых из последовательности за одно обращение.
+     * Совпадает с шагом последовательности {@code category_tree_id_seq}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 500;
+
     public Category() {
     }
 
@@ -22,14 +28,34 @@ public class Category {
         this.name = name;
     }
 
+    /**
+     * Идентификаторы выделяются из последовательности блоками по {@code allocationSize},
+     * поэтому Hibernate может объединять вставки в пакеты. Шаг последовательности в базе данных
+     * должен совпадать с {@code allocationSize}.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_tree_id_seq")
+    @SequenceGenerator(name = "category_tree_id_seq", sequenceName = "category_tree_id_seq",
+            allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "name", nullable = false, unique = true)
+    /**
+     * Название уникально среди категорий дерева; уникальность проверяется сервисом.
+     * Категории внутри ветвей, ожидающих фонового удаления, сохраняют свои названия,
+     * поэтому ограничение уникальности в базе данных не создается, а поиск по названию
+     * использует обычный индекс {@code category_tree_name_idx}.
+     */
+    @Column(name = "name", nullable = false)
     private String name;
 
+    /**
+     * Материализованный путь от корня в виде {@code /id_корня/.../id/}.
+     * Поддерживается триггерами базы данных, поэтому только читается.
+     */
+    @Column(name = "path", insertable = false, updatable = false)
+    private String path;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_parent")
     private Category parent;
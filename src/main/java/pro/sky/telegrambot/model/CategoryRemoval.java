@@ -0,0 +1,10 @@
+package pro.sky.telegrambot.model;
+
+/**
+ * Результат удаления категории.
+ *
+ * @param count      количество удаленных категорий, для фонового удаления - оценка размера ветви
+ * @param background true, если ветвь отсоединена от дерева и удаляется в фоновом режиме
+ */
+public record CategoryRemoval(int count, boolean background) {
+}
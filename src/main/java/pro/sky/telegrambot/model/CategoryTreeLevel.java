@@ -0,0 +1,27 @@
+package pro.sky.telegrambot.model;
+
+import java.util.List;
+
+/**
+ * Один уровень дерева категорий: категория и порция её дочерних категорий.
+ *
+ * @param categoryId   идентификатор категории или null для уровня корневых категорий
+ * @param categoryName название категории или null для уровня корневых категорий
+ * @param parentId     идентификатор родительской категории или null
+ * @param children     дочерние категории, попавшие в порцию
+ * @param offset       порядковый номер первой дочерней категории порции
+ * @param childCount   общее количество дочерних категорий
+ */
+public record CategoryTreeLevel(Long categoryId, String categoryName, Long parentId,
+                                List<Child> children, int offset, int childCount) {
+
+    /**
+     * Дочерняя категория уровня.
+     *
+     * @param id          идентификатор категории
+     * @param name        название категории
+     * @param hasChildren true, если у категории есть дочерние категории
+     */
+    public record Child(long id, String name, boolean hasChildren) {
+    }
+}
@@ -0,0 +1,11 @@
+package pro.sky.telegrambot.model;
+
+/**
+ * Страница текстового представления дерева категорий.
+ *
+ * @param number  номер страницы, начиная с 1
+ * @param text    строки дерева, попавшие на страницу
+ * @param hasNext true, если за этой страницей есть следующая
+ */
+public record CategoryTreePage(int number, String text, boolean hasNext) {
+}
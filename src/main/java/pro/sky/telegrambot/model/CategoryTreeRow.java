@@ -0,0 +1,27 @@
+package pro.sky.telegrambot.model;
+
+/**
+ * Проекция строки дерева категорий, загружаемой одним рекурсивным запросом.
+ */
+public interface CategoryTreeRow {
+
+    /**
+     * @return идентификатор категории
+     */
+    Long getId();
+
+    /**
+     * @return название категории
+     */
+    String getName();
+
+    /**
+     * @return идентификатор родительской категории или null для корневой
+     */
+    Long getParentId();
+
+    /**
+     * @return уровень вложенности (0 для корневых категорий)
+     */
+    Integer getDepth();
+}
@@ -0,0 +1,325 @@
+package pro.sky.telegrambot.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок всего дерева категорий.
+ * Создается целиком при каждом изменении дерева и безопасно читается из любых потоков без блокировок.
+ * <p>
+ * Узлы хранятся в параллельных массивах примитивов и адресуются индексом от 0 до {@link #size()} - 1:
+ * <ul>
+ *   <li>{@code ids} - идентификаторы категорий</li>
+ *   <li>{@code parentIndex} - индекс родителя или -1 для корневой категории</li>
+ *   <li>{@code childOffsets}/{@code childIndex} - дочерние категории в формате CSR:
+ *   дети узла i лежат в {@code childIndex[childOffsets[i]..childOffsets[i + 1])}</li>
+ *   <li>{@code namePool}/{@code nameOffsets} - названия в одном пуле байтов UTF-8</li>
+ *   <li>{@code nameTable} - хеш-таблица с открытой адресацией для поиска по названию</li>
+ *   <li>{@code idOrder} - индексы узлов, упорядоченные по идентификатору, для двоичного поиска</li>
+ * </ul>
+ */
+public final class CategoryTreeSnapshot {
+
+    /**
+     * Индекс, означающий отсутствие узла.
+     */
+    public static final int NO_NODE = -1;
+
+    private final long version;
+    private final long[] ids;
+    private final int[] parentIndex;
+    private final int[] rootIndex;
+    private final int[] childOffsets;
+    private final int[] childIndex;
+    private final byte[] namePool;
+    private final int[] nameOffsets;
+    private final int[] nameTable;
+    private final int[] idOrder;
+
+    private CategoryTreeSnapshot(long version, long[] ids, int[] parentIndex, int[] rootIndex,
+                                 int[] childOffsets, int[] childIndex, byte[] namePool, int[] nameOffsets) {
+        this.version = version;
+        this.ids = ids;
+        this.parentIndex = parentIndex;
+        this.rootIndex = rootIndex;
+        this.childOffsets = childOffsets;
+        this.childIndex = childIndex;
+        this.namePool = namePool;
+        this.nameOffsets = nameOffsets;
+        this.nameTable = buildNameTable();
+        this.idOrder = buildIdOrder();
+    }
+
+    /**
+     * Создает снимок из строк рекурсивного запроса.
+     * Строки должны быть упорядочены так, чтобы родитель предшествовал дочерним категориям.
+     *
+     * @param version версия дерева, которой соответствует снимок
+     * @param rows    строки дерева категорий
+     * @return снимок дерева
+     */
+    public static CategoryTreeSnapshot of(long version, List<? extends CategoryTreeRow> rows) {
+        int size = rows.size();
+        long[] ids = new long[size];
+        int[] parentIndex = new int[size];
+        int[] childCounts = new int[size + 1];
+        int rootCount = 0;
+        byte[][] names = new byte[size][];
+        int namePoolSize = 0;
+        Map<Long, Integer> indexById = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            CategoryTreeRow row = rows.get(i);
+            ids[i] = row.getId();
+            Integer parent = row.getParentId() != null ? indexById.get(row.getParentId()) : null;
+            parentIndex[i] = parent != null ? parent : NO_NODE;
+            if (parent != null) {
+                childCounts[parent]++;
+            } else {
+                rootCount++;
+            }
+            names[i] = row.getName().getBytes(StandardCharsets.UTF_8);
+            namePoolSize += names[i].length;
+            indexById.put(ids[i], i);
+        }
+
+        int[] childOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            childOffsets[i + 1] = childOffsets[i] + childCounts[i];
+        }
+        int[] childIndex = new int[childOffsets[size]];
+        int[] rootIndex = new int[rootCount];
+        int[] nextChild = Arrays.copyOf(childOffsets, size);
+        int nextRoot = 0;
+        byte[] namePool = new byte[namePoolSize];
+        int[] nameOffsets = new int[size + 1];
+
+        for (int i = 0; i < size; i++) {
+            if (parentIndex[i] == NO_NODE) {
+                rootIndex[nextRoot++] = i;
+            } else {
+                childIndex[nextChild[parentIndex[i]]++] = i;
+            }
+            System.arraycopy(names[i], 0, namePool, nameOffsets[i], names[i].length);
+            nameOffsets[i + 1] = nameOffsets[i] + names[i].length;
+        }
+        return new CategoryTreeSnapshot(version, ids, parentIndex, rootIndex,
+                childOffsets, childIndex, namePool, nameOffsets);
+    }
+
+    /**
+     * @return версия дерева, которой соответствует снимок
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true, если в дереве нет ни одной категории
+     */
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    /**
+     * @return количество категорий в снимке
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return количество корневых категорий
+     */
+    public int rootCount() {
+        return rootIndex.length;
+    }
+
+    /**
+     * @param i порядковый номер корневой категории
+     * @return индекс узла корневой категории
+     */
+    public int root(int i) {
+        return rootIndex[i];
+    }
+
+    /**
+     * @param node индекс узла
+     * @return идентификатор категории
+     */
+    public long id(int node) {
+        return ids[node];
+    }
+
+    /**
+     * @param node индекс узла
+     * @return название категории
+     */
+    public String name(int node) {
+        return new String(namePool, nameOffsets[node], nameOffsets[node + 1] - nameOffsets[node],
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Вычисляет длину названия в символах UTF-16 без декодирования строки.
+     *
+     * @param node индекс узла
+     * @return длина названия категории, как у {@link String#length()}
+     */
+    public int nameLength(int node) {
+        int length = 0;
+        for (int i = nameOffsets[node]; i < nameOffsets[node + 1]; i++) {
+            int b = namePool[i] & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                length += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @param node индекс узла
+     * @return индекс родительского узла или {@link #NO_NODE} для корневой категории
+     */
+    public int parent(int node) {
+        return parentIndex[node];
+    }
+
+    /**
+     * @param node индекс узла
+     * @return количество дочерних категорий
+     */
+    public int childCount(int node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    /**
+     * @param node индекс узла
+     * @param i    порядковый номер дочерней категории
+     * @return индекс узла дочерней категории
+     */
+    public int child(int node, int i) {
+        return childIndex[childOffsets[node] + i];
+    }
+
+    /**
+     * Подсчитывает количество категорий в поддереве узла, включая сам узел.
+     *
+     * @param node индекс узла
+     * @return размер поддерева
+     */
+    public int subtreeSize(int node) {
+        int[] stack = new int[16];
+        int top = 0;
+        int size = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            size++;
+            int count = childCount(current);
+            if (top + count > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count));
+            }
+            System.arraycopy(childIndex, childOffsets[current], stack, top, count);
+            top += count;
+        }
+        return size;
+    }
+
+    /**
+     * Находит узел по названию категории.
+     *
+     * @param name название категории
+     * @return индекс узла или {@link #NO_NODE}, если категория не найдена
+     */
+    public int indexOf(String name) {
+        if (nameTable.length == 0) {
+            return NO_NODE;
+        }
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int mask = nameTable.length - 1;
+        for (int slot = hash(key, 0, key.length) & mask; nameTable[slot] != 0; slot = (slot + 1) & mask) {
+            int node = nameTable[slot] - 1;
+            if (Arrays.equals(namePool, nameOffsets[node], nameOffsets[node + 1], key, 0, key.length)) {
+                return node;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Находит узел по идентификатору категории.
+     *
+     * @param id идентификатор категории
+     * @return индекс узла или {@link #NO_NODE}, если категория не найдена
+     */
+    public int indexOfId(long id) {
+        int low = 0;
+        int high = idOrder.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = ids[idOrder[middle]];
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return idOrder[middle];
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Строит хеш-таблицу названий с загрузкой не более 50%.
+     * В ячейке хранится индекс узла, увеличенный на единицу, ноль означает пустую ячейку.
+     *
+     * @return хеш-таблица названий
+     */
+    private int[] buildNameTable() {
+        if (ids.length == 0) {
+            return new int[0];
+        }
+        int[] table = new int[Integer.highestOneBit(ids.length * 2 - 1) << 1];
+        int mask = table.length - 1;
+        for (int node = 0; node < ids.length; node++) {
+            int slot = hash(namePool, nameOffsets[node], nameOffsets[node + 1]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Упорядочивает индексы узлов по идентификатору категории.
+     * Идентификаторы уникальны, поэтому позиция узла находится двоичным поиском в отсортированной копии
+     * идентификаторов без упаковки индексов в объекты.
+     *
+     * @return индексы узлов в порядке возрастания идентификаторов
+     */
+    private int[] buildIdOrder() {
+        long[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        int[] order = new int[ids.length];
+        for (int node = 0; node < ids.length; node++) {
+            order[Arrays.binarySearch(sortedIds, ids[node])] = node;
+        }
+        return order;
+    }
+
+    /**
+     * Вычисляет хеш FNV-1a диапазона байтов.
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,13 @@
+package pro.sky.telegrambot.model;
+
+import java.nio.file.Path;
+
+/**
+ * Сформированный Excel-документ с деревом категорий.
+ *
+ * @param version версия дерева категорий, для которой сформирован документ
+ * @param file    временный файл с документом
+ * @param fileId  идентификатор файла на серверах Telegram или null, если документ еще не отправлялся
+ */
+public record ExportArtifact(long version, Path file, String fileId) {
+}
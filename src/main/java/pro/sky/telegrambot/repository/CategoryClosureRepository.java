@@ -0,0 +1,185 @@
+package pro.sky.telegrambot.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import pro.sky.telegrambot.model.CategoryTreeRow;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Репозиторий таблицы замыкания {@code category_closure(ancestor, descendant, depth)}.
+ * <p>
+ * Таблица хранит пару для каждого предка и потомка, включая пару категории с самой собой на глубине 0.
+ * Поиск потомков, предков, размера поддерева и поддерева ограниченной глубины выполняется одним
+ * соединением по индексу без рекурсии. Категории внутри ветвей, отсоединенных для фонового удаления,
+ * в результатах не возвращаются.
+ */
+@Repository
+public class CategoryClosureRepository {
+
+    private static final String NOT_DETACHED = """
+            NOT EXISTS (
+                SELECT 1
+                FROM category_closure x
+                JOIN category_tree d ON d.id = x.ancestor
+                WHERE x.descendant = t.id AND d.detached
+            )
+            """;
+
+    private static final RowMapper<CategoryTreeRow> ROW_MAPPER = (rs, rowNum) -> new ClosureRow(
+            rs.getLong("id"), rs.getString("name"), rs.getObject("id_parent", Long.class), rs.getInt("depth"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CategoryClosureRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Добавляет в таблицу замыкания пары категорий с самими собой.
+     *
+     * @param ids идентификаторы новых категорий
+     */
+    public void insertSelfLinks(Collection<Long> ids) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO category_closure (ancestor, descendant, depth) VALUES (?, ?, 0)",
+                ids, ids.size(), (ps, id) -> {
+                    ps.setLong(1, id);
+                    ps.setLong(2, id);
+                });
+    }
+
+    /**
+     * Добавляет новую категорию без потомков под указанного родителя.
+     *
+     * @param id       идентификатор новой категории
+     * @param parentId идентификатор родительской категории
+     */
+    public void insertLeaf(long id, long parentId) {
+        jdbcTemplate.update("""
+                INSERT INTO category_closure (ancestor, descendant, depth)
+                SELECT ancestor, ?, depth + 1
+                FROM category_closure
+                WHERE descendant = ?
+                UNION ALL
+                SELECT ?, ?, 0
+                """, id, parentId, id, id);
+    }
+
+    /**
+     * Полностью перестраивает таблицу замыкания по списку смежности одним рекурсивным запросом.
+     */
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM category_closure");
+        jdbcTemplate.update("""
+                INSERT INTO category_closure (ancestor, descendant, depth)
+                WITH RECURSIVE closure AS (
+                    SELECT id AS ancestor, id AS descendant, 0 AS depth
+                    FROM category_tree
+                    UNION ALL
+                    SELECT c.ancestor, t.id, c.depth + 1
+                    FROM closure c
+                    JOIN category_tree t ON t.id_parent = c.descendant
+                )
+                SELECT ancestor, descendant, depth
+                FROM closure
+                """);
+    }
+
+    /**
+     * Находит поддерево категории до указанной глубины.
+     * Начальная категория возвращается без родителя, как корень поддерева.
+     *
+     * @param name     название начальной категории
+     * @param maxDepth максимальный уровень вложенности относительно начальной категории
+     * @return строки поддерева, упорядоченные по уровню вложенности и идентификатору,
+     * или пустой список, если категория не найдена или находится в отсоединенной ветви
+     */
+    public List<CategoryTreeRow> findSubtree(String name, int maxDepth) {
+        return jdbcTemplate.query("""
+                SELECT t.id, t.name, CASE WHEN c.depth = 0 THEN NULL ELSE t.id_parent END AS id_parent, c.depth
+                FROM category_tree s
+                JOIN category_closure c ON c.ancestor = s.id
+                JOIN category_tree t ON t.id = c.descendant
+                WHERE s.name = ? AND c.depth <= ? AND
+                """ + NOT_DETACHED + """
+                ORDER BY c.depth, t.id
+                """, ROW_MAPPER, name, maxDepth);
+    }
+
+    /**
+     * Находит путь от корня дерева до категории.
+     * Для категорий внутри отсоединенных ветвей путь не возвращается.
+     *
+     * @param name название категории
+     * @return строки предков от корня до самой категории включительно
+     */
+    public List<CategoryTreeRow> findAncestors(String name) {
+        return jdbcTemplate.query("""
+                SELECT a.id, a.name, a.id_parent, max(c.depth) OVER () - c.depth AS depth
+                FROM category_tree t
+                JOIN category_closure c ON c.descendant = t.id
+                JOIN category_tree a ON a.id = c.ancestor
+                WHERE t.name = ? AND
+                """ + NOT_DETACHED + """
+                ORDER BY c.depth DESC
+                """, ROW_MAPPER, name);
+    }
+
+    /**
+     * Подсчитывает количество категорий в поддереве, включая саму категорию.
+     *
+     * @param name название категории
+     * @return размер поддерева или 0, если категория не найдена или находится в отсоединенной ветви
+     */
+    public int countSubtree(String name) {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT count(*)
+                FROM category_tree s
+                JOIN category_closure c ON c.ancestor = s.id
+                JOIN category_tree t ON t.id = c.descendant
+                WHERE s.name = ? AND
+                """ + NOT_DETACHED, Integer.class, name);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Строка дерева, прочитанная из таблицы замыкания.
+     */
+    private static final class ClosureRow implements CategoryTreeRow {
+
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final Integer depth;
+
+        private ClosureRow(Long id, String name, Long parentId, Integer depth) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.depth = depth;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Long getParentId() {
+            return parentId;
+        }
+
+        @Override
+        public Integer getDepth() {
+            return depth;
+        }
+    }
+}
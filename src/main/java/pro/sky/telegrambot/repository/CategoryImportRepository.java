@@ -0,0 +1,190 @@
+package pro.sky.telegrambot.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import pro.sky.telegrambot.model.Category;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Репозиторий массовой загрузки категорий через {@code COPY} PostgreSQL.
+ * <p>
+ * Строки файла копируются во временную таблицу {@code category_import}, после чего названия
+ * сопоставляются с существующими категориями, новым категориям выделяются идентификаторы
+ * и родительские связи устанавливаются несколькими запросами над множествами строк.
+ * Временные таблицы удаляются при завершении транзакции, поэтому все методы
+ * должны вызываться в одной транзакции.
+ */
+@Repository
+public class CategoryImportRepository {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CategoryImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Создает временную таблицу для строк файла.
+     * Столбец {@code line} сохраняет порядок строк, чтобы при повторах действовала последняя строка.
+     */
+    public void createStagingTable() {
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE category_import (
+                    line          BIGINT GENERATED ALWAYS AS IDENTITY,
+                    row_id        BIGINT       NOT NULL,
+                    name          VARCHAR(100) NOT NULL,
+                    parent_row_id BIGINT
+                ) ON COMMIT DROP
+                """);
+    }
+
+    /**
+     * Передает строки файла во временную таблицу потоком в формате CSV.
+     *
+     * @param categories категории в нумерации файла
+     * @return количество скопированных строк
+     */
+    public long copyRows(List<Category> categories) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY category_import (row_id, name, parent_row_id) FROM STDIN (FORMAT csv)");
+            try {
+                StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 256);
+                for (Category category : categories) {
+                    buffer.append(category.getId())
+                            .append(",\"").append(category.getName().replace("\"", "\"\"")).append("\",");
+                    if (category.getParent() != null) {
+                        buffer.append(category.getParent().getId());
+                    }
+                    buffer.append('\n');
+                    if (buffer.length() >= COPY_BUFFER_SIZE) {
+                        write(copyIn, buffer);
+                    }
+                }
+                write(copyIn, buffer);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+        return copied != null ? copied : 0;
+    }
+
+    /**
+     * Сопоставляет названия из файла с категориями дерева и выделяет идентификаторы новым категориям.
+     * Идентификаторы выделяются блоками из последовательности так же, как это делает Hibernate
+     * (значение последовательности - верхняя граница блока), поэтому не пересекаются с идентификаторами,
+     * которые выделяет приложение. Категории внутри отсоединенных ветвей не сопоставляются,
+     * поэтому их названия создаются заново.
+     *
+     * @param allocationSize шаг последовательности {@code category_tree_id_seq}
+     * @return количество новых категорий
+     */
+    public int resolveTargets(int allocationSize) {
+        jdbcTemplate.execute("ANALYZE category_import");
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE category_import_target ON COMMIT DROP AS
+                SELECT n.name,
+                       t.id,
+                       t.id IS NULL AS created,
+                       CASE WHEN t.id IS NULL
+                            THEN row_number() OVER (PARTITION BY t.id IS NULL ORDER BY n.name) - 1
+                       END AS new_index
+                FROM (SELECT DISTINCT name FROM category_import) n
+                LEFT JOIN category_tree t
+                    ON t.name = n.name
+                   AND NOT EXISTS (
+                       SELECT 1
+                       FROM category_tree d
+                       WHERE d.detached AND t.path >= d.path AND t.path < d.path || '~'
+                   )
+                """);
+        Integer created = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM category_import_target WHERE created", Integer.class);
+        if (created == null || created == 0) {
+            return 0;
+        }
+        int blocks = (created + allocationSize - 1) / allocationSize;
+        jdbcTemplate.update("""
+                CREATE TEMP TABLE category_import_block ON COMMIT DROP AS
+                SELECT row_number() OVER (ORDER BY high) - 1 AS block, high
+                FROM (
+                    SELECT nextval('category_tree_id_seq') AS high
+                    FROM generate_series(1, ?)
+                ) b
+                WHERE high >= ?
+                """, blocks + 1, allocationSize);
+        jdbcTemplate.update("""
+                UPDATE category_import_target g
+                SET id = b.high - g.new_index % ?
+                FROM category_import_block b
+                WHERE g.created AND b.block = g.new_index / ?
+                """, allocationSize, allocationSize);
+        jdbcTemplate.execute("ANALYZE category_import_target");
+        return created;
+    }
+
+    /**
+     * Вставляет новые категории без родителей.
+     *
+     * @return количество вставленных категорий
+     */
+    public int insertCreated() {
+        return jdbcTemplate.update("""
+                INSERT INTO category_tree (id, name)
+                SELECT id, name
+                FROM category_import_target
+                WHERE created
+                ORDER BY id
+                """);
+    }
+
+    /**
+     * Устанавливает родителей, указанных в файле.
+     * Если родитель строки не найден в файле, у категории остается прежний родитель.
+     *
+     * @return количество категорий, у которых изменился родитель
+     */
+    public int updateParents() {
+        return jdbcTemplate.update("""
+                UPDATE category_tree t
+                SET id_parent = p.parent_id
+                FROM (
+                    SELECT DISTINCT ON (i.name) i.name, pt.id AS parent_id
+                    FROM category_import i
+                    JOIN (
+                        SELECT DISTINCT ON (row_id) row_id, name
+                        FROM category_import
+                        ORDER BY row_id, line DESC
+                    ) pi ON pi.row_id = i.parent_row_id
+                    JOIN category_import_target pt ON pt.name = pi.name
+                    ORDER BY i.name, i.line DESC
+                ) p
+                JOIN category_import_target ct ON ct.name = p.name
+                WHERE t.id = ct.id AND t.id_parent IS DISTINCT FROM p.parent_id
+                """);
+    }
+
+    /**
+     * @return названия всех категорий из файла
+     */
+    public List<String> findImportedNames() {
+        return jdbcTemplate.queryForList("SELECT name FROM category_import_target", String.class);
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
@@ -1,11 +1,22 @@
 package pro.sky.telegrambot.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryTreeRow;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 /**
  * Репозиторий для работы с категориями в базе данных.
@@ -15,19 +26,44 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     /**
      * Находит категорию по названию.
+     * Категории внутри ветвей, отсоединенных для фонового удаления, не находятся.
      *
      * @param name название категории для поиска
      * @return {@link Optional}, содержащий категорию, если найдена
      */
-    Optional<Category> findByName(String name);
+    @Query(value = """
+            SELECT c.*
+            FROM category_tree c
+            WHERE c.name = :name
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM category_tree d
+                  WHERE d.detached AND c.path >= d.path AND c.path < d.path || '~'
+              )
+            """, nativeQuery = true)
+    Optional<Category> findByName(@Param("name") String name);
 
     /**
      * Проверяет существование категории с указанным названием.
+     * Категории внутри ветвей, отсоединенных для фонового удаления, не учитываются,
+     * поэтому их названия можно использовать повторно до завершения удаления.
      *
      * @param name название категории для проверки
      * @return true если категория существует, false в противном случае
      */
-    boolean existsByName(String name);
+    @Query(value = """
+            SELECT EXISTS (
+                SELECT 1
+                FROM category_tree c
+                WHERE c.name = :name
+                  AND NOT EXISTS (
+                      SELECT 1
+                      FROM category_tree d
+                      WHERE d.detached AND c.path >= d.path AND c.path < d.path || '~'
+                  )
+            )
+            """, nativeQuery = true)
+    boolean existsByName(@Param("name") String name);
 
     /**
      * Находит все корневые категории (без родителя).
@@ -38,9 +74,189 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     /**
      * Находит все категории, чьи названия содержатся в переданном списке.
+     * Категории внутри ветвей, отсоединенных для фонового удаления, не находятся.
      *
      * @param names список названий категорий для поиска
      * @return список найденных категорий
      */
-    List<Category> findByNameIn(List<String> names);
+    @Query(value = """
+            SELECT c.*
+            FROM category_tree c
+            WHERE c.name IN (:names)
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM category_tree d
+                  WHERE d.detached AND c.path >= d.path AND c.path < d.path || '~'
+              )
+            """, nativeQuery = true)
+    List<Category> findByNameIn(@Param("names") List<String> names);
+
+    /**
+     * Загружает всё дерево категорий одним рекурсивным запросом.
+     * Строки упорядочены по уровню вложенности, а внутри уровня - по идентификатору,
+     * поэтому родитель всегда предшествует своим дочерним категориям.
+     * Ветви, отсоединенные для фонового удаления, не загружаются.
+     *
+     * @return список строк дерева (id, name, id_parent, depth)
+     */
+    @Query(value = """
+            WITH RECURSIVE tree AS (
+                SELECT c.id, c.name, c.id_parent, 0 AS depth
+                FROM category_tree c
+                WHERE c.id_parent IS NULL AND NOT c.detached
+                UNION ALL
+                SELECT c.id, c.name, c.id_parent, t.depth + 1
+                FROM category_tree c
+                JOIN tree t ON c.id_parent = t.id
+            )
+            SELECT id AS "id", name AS "name", id_parent AS "parentId", depth AS "depth"
+            FROM tree
+            ORDER BY depth, id
+            """, nativeQuery = true)
+    List<CategoryTreeRow> findTree();
+
+    /**
+     * Читает всё дерево категорий курсором базы данных в том же порядке, что и {@link #findTree()}.
+     * Строки загружаются порциями по 1000, поэтому в памяти не держится всё дерево.
+     * Поток должен читаться и закрываться внутри транзакции.
+     *
+     * @return поток строк дерева (id, name, id_parent, depth)
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query(value = """
+            WITH RECURSIVE tree AS (
+                SELECT c.id, c.name, c.id_parent, 0 AS depth
+                FROM category_tree c
+                WHERE c.id_parent IS NULL AND NOT c.detached
+                UNION ALL
+                SELECT c.id, c.name, c.id_parent, t.depth + 1
+                FROM category_tree c
+                JOIN tree t ON c.id_parent = t.id
+            )
+            SELECT id AS "id", name AS "name", id_parent AS "parentId", depth AS "depth"
+            FROM tree
+            ORDER BY depth, id
+            """, nativeQuery = true)
+    Stream<CategoryTreeRow> streamTree();
+
+    /**
+     * Удаляет категорию вместе со всеми вложенными категориями одним запросом.
+     * Поддерево собирается рекурсивным запросом и удаляется на стороне базы данных,
+     * без загрузки сущностей в контекст персистентности.
+     * Категории внутри отсоединенных ветвей не удаляются: их удаляет фоновая очистка.
+     *
+     * @param name название удаляемой категории
+     * @return количество удаленных категорий или 0, если категория не найдена
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            WITH RECURSIVE subtree AS (
+                SELECT c.id
+                FROM category_tree c
+                WHERE c.name = :name
+                  AND NOT EXISTS (
+                      SELECT 1
+                      FROM category_tree d
+                      WHERE d.detached AND c.path >= d.path AND c.path < d.path || '~'
+                  )
+                UNION ALL
+                SELECT c.id
+                FROM category_tree c
+                JOIN subtree s ON c.id_parent = s.id
+            )
+            DELETE FROM category_tree
+            WHERE id IN (SELECT id FROM subtree)
+            """, nativeQuery = true)
+    int deleteSubtreeByName(@Param("name") String name);
+
+    /**
+     * Отсоединяет категорию от дерева для фонового удаления.
+     * Категория становится корнем отсоединенной ветви и переименовывается, чтобы освободить название;
+     * вложенные категории не изменяются, поэтому запрос затрагивает ровно одну строку.
+     *
+     * @param id идентификатор категории
+     * @return количество измененных строк
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE category_tree
+            SET id_parent = NULL, detached = TRUE, name = '~' || id
+            WHERE id = :id
+            """, nativeQuery = true)
+    int detachById(@Param("id") Long id);
+
+    /**
+     * Подсчитывает категории ветви, включая её корень, одним диапазонным сканированием индекса
+     * по материализованному пути. Отсоединенная ветвь сохраняет прежние пути до удаления.
+     *
+     * @param rootId идентификатор корня ветви
+     * @return количество категорий ветви или 0, если корень не найден
+     */
+    @Query("""
+            SELECT COUNT(c)
+            FROM Category r, Category c
+            WHERE r.id = :rootId AND c.path >= r.path AND c.path < CONCAT(r.path, '~')
+            """)
+    long countSubtree(@Param("rootId") Long rootId);
+
+    /**
+     * Удаляет порцию категорий ветви с наибольшими материализованными путями в отдельной транзакции.
+     * Путь потомка начинается с пути предка и поэтому больше его, так что порция, взятая с конца
+     * индекса по пути, содержит каждую свою категорию вместе со всеми оставшимися потомками,
+     * и каскадное удаление по внешнему ключу не выходит за пределы порции. Корень ветви удаляется
+     * последней порцией. Идентификаторы ветви не загружаются в приложение.
+     *
+     * @param rootId идентификатор корня ветви
+     * @param limit  максимальное количество удаляемых категорий
+     * @return количество удаленных категорий или 0, если ветвь уже удалена
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            DELETE FROM category_tree
+            WHERE id IN (
+                SELECT c.id
+                FROM category_tree r
+                JOIN category_tree c ON c.path >= r.path AND c.path < r.path || '~'
+                WHERE r.id = :rootId
+                ORDER BY c.path DESC
+                LIMIT :limit
+            )
+            """, nativeQuery = true)
+    int deleteSubtreeBatch(@Param("rootId") Long rootId, @Param("limit") int limit);
+
+    /**
+     * Находит корни отсоединенных ветвей, удаление которых еще не завершено.
+     *
+     * @return идентификаторы корней отсоединенных ветвей
+     */
+    @Query(value = "SELECT id FROM category_tree WHERE detached ORDER BY id", nativeQuery = true)
+    List<Long> findDetachedRootIds();
+
+    /**
+     * Находит путь от корня дерева до категории по материализованному пути.
+     * Предки выбираются по первичному ключу из идентификаторов, записанных в пути категории.
+     * Для категорий внутри отсоединенных ветвей путь не возвращается.
+     *
+     * @param name название категории
+     * @return строки предков от корня до самой категории включительно
+     */
+    @Query(value = """
+            SELECT a.id AS "id", a.name AS "name", a.id_parent AS "parentId",
+                   length(a.path) - length(replace(a.path, '/', '')) - 2 AS "depth"
+            FROM category_tree c
+            JOIN category_tree a
+                ON a.id = ANY (string_to_array(trim(BOTH '/' FROM c.path), '/')::BIGINT[])
+            WHERE c.name = :name
+              AND NOT EXISTS (
+                  SELECT 1
+                  FROM category_tree d
+                  WHERE d.detached AND c.path >= d.path AND c.path < d.path || '~'
+              )
+            ORDER BY length(a.path)
+            """, nativeQuery = true)
+    List<CategoryTreeRow> findAncestors(@Param("name") String name);
 }
@@ -0,0 +1,61 @@
+package pro.sky.telegrambot.service;
+
+import pro.sky.telegrambot.model.CategoryTreeRow;
+
+import java.util.List;
+
+/**
+ * Сервис поддержки таблицы замыкания дерева категорий.
+ * Методы регистрации изменений выполняются в транзакции вызывающей операции, поэтому таблица замыкания
+ * фиксируется вместе с изменением дерева. Если таблица замыкания отключена, они ничего не делают.
+ */
+public interface CategoryClosureService {
+
+    /**
+     * @return true, если таблица замыкания включена и поддерживается
+     */
+    boolean isEnabled();
+
+    /**
+     * Регистрирует новую категорию без потомков.
+     *
+     * @param id       идентификатор новой категории
+     * @param parentId идентификатор родительской категории или null для корневой
+     */
+    void onCategoryAdded(Long id, Long parentId);
+
+    /**
+     * Обновляет таблицу замыкания после массовой загрузки, изменившей дерево запросами над множествами строк.
+     */
+    void onCategoriesImported();
+
+    /**
+     * Находит путь от корня дерева до категории по таблице замыкания.
+     * Вызывается только при включенной таблице замыкания.
+     *
+     * @param name название категории
+     * @return строки предков от корня до самой категории включительно или пустой список,
+     * если категория не найдена или находится в отсоединенной ветви
+     */
+    List<CategoryTreeRow> findAncestors(String name);
+
+    /**
+     * Находит поддерево категории до указанной глубины по таблице замыкания.
+     * Вызывается только при включенной таблице замыкания.
+     *
+     * @param name     название начальной категории
+     * @param maxDepth максимальный уровень вложенности относительно начальной категории
+     * @return строки поддерева, начиная с самой категории без родителя, или пустой список,
+     * если категория не найдена или находится в отсоединенной ветви
+     */
+    List<CategoryTreeRow> findSubtree(String name, int maxDepth);
+
+    /**
+     * Подсчитывает размер поддерева категории по таблице замыкания.
+     * Вызывается только при включенной таблице замыкания.
+     *
+     * @param name название категории
+     * @return количество категорий поддерева, включая саму категорию, или 0, если категория не найдена
+     */
+    int countSubtree(String name);
+}
@@ -0,0 +1,133 @@
+package pro.sky.telegrambot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pro.sky.telegrambot.model.CategoryTreeRow;
+import pro.sky.telegrambot.repository.CategoryClosureRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * Реализация сервиса поддержки таблицы замыкания.
+ * <p>
+ * Таблица включается свойством {@code category.closure.enabled}. Пока она отключена, изменения дерева
+ * в неё не записываются, поэтому при запуске с включенной таблицей она перестраивается целиком.
+ * Удаление категорий отдельно не обрабатывается: строки замыкания удаляются каскадно по внешним ключам.
+ * Ветви, отсоединенные для фонового удаления, сохраняют связи до удаления и отфильтровываются запросами.
+ * <p>
+ * Вставки категорий откладываются Hibernate до сброса контекста, поэтому перед записью связей
+ * контекст сохраняемости сбрасывается в базу данных.
+ */
+@Service
+public class CategoryClosureServiceImpl implements CategoryClosureService {
+
+    private final CategoryClosureRepository closureRepository;
+    private final EntityManager entityManager;
+    private final boolean enabled;
+    private final Logger logger = LoggerFactory.getLogger(CategoryClosureServiceImpl.class);
+
+    public CategoryClosureServiceImpl(CategoryClosureRepository closureRepository,
+                                      EntityManager entityManager,
+                                      @Value("${category.closure.enabled:false}") boolean enabled) {
+        this.closureRepository = closureRepository;
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true, если таблица замыкания включена свойством {@code category.closure.enabled}
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Добавляет связи новой категории с собой и со всеми предками родителя.
+     *
+     * @param id       идентификатор новой категории
+     * @param parentId идентификатор родительской категории или null для корневой
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCategoryAdded(Long id, Long parentId) {
+        if (!enabled) {
+            return;
+        }
+        entityManager.flush();
+        if (parentId == null) {
+            closureRepository.insertSelfLinks(List.of(id));
+        } else {
+            closureRepository.insertLeaf(id, parentId);
+        }
+    }
+
+    /**
+     * Перестраивает таблицу замыкания целиком после массовой загрузки.
+     * Одно перестроение дешевле переноса поддерева для каждой загруженной категории.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCategoriesImported() {
+        if (enabled) {
+            entityManager.flush();
+            closureRepository.rebuild();
+        }
+    }
+
+    /**
+     * Находит путь от корня дерева до категории одним соединением по таблице замыкания.
+     *
+     * @param name название категории
+     * @return строки предков от корня до самой категории включительно
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryTreeRow> findAncestors(String name) {
+        return closureRepository.findAncestors(name);
+    }
+
+    /**
+     * Находит поддерево категории одним соединением по таблице замыкания.
+     *
+     * @param name     название начальной категории
+     * @param maxDepth максимальный уровень вложенности относительно начальной категории
+     * @return строки поддерева, начиная с самой категории
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryTreeRow> findSubtree(String name, int maxDepth) {
+        return closureRepository.findSubtree(name, maxDepth);
+    }
+
+    /**
+     * Подсчитывает размер поддерева категории одним соединением по таблице замыкания.
+     *
+     * @param name название категории
+     * @return количество категорий поддерева, включая саму категорию
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public int countSubtree(String name) {
+        return closureRepository.countSubtree(name);
+    }
+
+    /**
+     * Перестраивает таблицу замыкания при запуске, если она включена.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildOnStartup() {
+        if (enabled) {
+            closureRepository.rebuild();
+            logger.info("Таблица замыкания дерева категорий перестроена");
+        }
+    }
+}
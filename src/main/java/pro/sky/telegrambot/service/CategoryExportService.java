@@ -0,0 +1,47 @@
+package pro.sky.telegrambot.service;
+
+import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
+import pro.sky.telegrambot.model.ExportArtifact;
+
+import java.io.IOException;
+
+/**
+ * Сервис, хранящий последний сформированный Excel-документ с деревом категорий.
+ */
+public interface CategoryExportService {
+
+    /**
+     * Возвращает документ, соответствующий текущей версии дерева, при необходимости формируя его.
+     * Пока аренда не закрыта, файл документа не удаляется и не заменяется.
+     * Аренду можно закрыть из другого потока, например после асинхронной отправки документа.
+     *
+     * @return аренда документа, которую необходимо закрыть после отправки
+     * @throws IOException                  если произошла ошибка при формировании документа
+     * @throws CategoryTreeIsEmptyException если дерево категорий пустое
+     */
+    Lease acquireArtifact() throws IOException;
+
+    /**
+     * Аренда сформированного документа на время его отправки.
+     */
+    interface Lease extends AutoCloseable {
+
+        /**
+         * @return арендованный документ
+         */
+        ExportArtifact artifact();
+
+        /**
+         * Запоминает идентификатор, под которым документ сохранен на серверах Telegram.
+         *
+         * @param fileId идентификатор файла
+         */
+        void rememberFileId(String fileId);
+
+        /**
+         * Освобождает документ.
+         */
+        @Override
+        void close();
+    }
+}
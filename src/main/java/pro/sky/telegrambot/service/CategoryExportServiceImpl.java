@@ -0,0 +1,231 @@
+package pro.sky.telegrambot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
+import pro.sky.telegrambot.model.ExportArtifact;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация сервиса Excel-документа с деревом категорий.
+ * <p>
+ * Документ хранится во временном файле вместе с версией дерева, для которой он построен.
+ * После изменения дерева документ заранее формируется в фоновом потоке, как только изменения
+ * прекращаются на {@code category.export.pregenerate-delay-ms} миллисекунд, поэтому серия изменений
+ * приводит к одному формированию. Блокировка удерживается только на время формирования документа,
+ * а не на время отправки. Каждая аренда увеличивает счетчик ссылок на документ, поэтому замененный
+ * документ удаляется только после закрытия последней аренды, и новые выгрузки не ждут отправок прежнего.
+ */
+@Service
+public class CategoryExportServiceImpl implements CategoryExportService {
+
+    private final ExcelProcessingService excelProcessingService;
+    private final CategoryTreeSnapshotService snapshotService;
+    private final long pregenerateDelayMs;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReference<StoredArtifact> artifact = new AtomicReference<>();
+    private final AtomicReference<ScheduledFuture<?>> pendingPregeneration = new AtomicReference<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Logger logger = LoggerFactory.getLogger(CategoryExportServiceImpl.class);
+
+    public CategoryExportServiceImpl(ExcelProcessingService excelProcessingService,
+                                     CategoryTreeSnapshotService snapshotService,
+                                     @Value("${category.export.pregenerate-delay-ms:2000}") long pregenerateDelayMs) {
+        this.excelProcessingService = excelProcessingService;
+        this.snapshotService = snapshotService;
+        this.pregenerateDelayMs = pregenerateDelayMs;
+    }
+
+    /**
+     * Возвращает документ текущей версии дерева. Если документ устарел, он формируется под блокировкой,
+     * которая освобождается сразу после формирования.
+     *
+     * @return аренда документа
+     * @throws IOException                  если произошла ошибка при формировании документа
+     * @throws CategoryTreeIsEmptyException если дерево категорий пустое
+     */
+    @Override
+    public Lease acquireArtifact() throws IOException {
+        long version = snapshotService.getSnapshot().getVersion();
+        StoredArtifact current = artifact.get();
+        if (current != null && current.version >= version && current.retain()) {
+            return new ArtifactLease(current);
+        }
+        lock.lock();
+        try {
+            current = refresh(version);
+            current.retain();
+            return new ArtifactLease(current);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Откладывает формирование документа после изменения дерева.
+     * Каждое новое изменение отменяет ранее запланированное формирование.
+     *
+     * @param event событие обновления снимка дерева
+     */
+    @EventListener
+    public void onSnapshotUpdated(CategoryTreeSnapshotUpdatedEvent event) {
+        ScheduledFuture<?> scheduled = scheduler.schedule(this::pregenerate, pregenerateDelayMs,
+                TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = pendingPregeneration.getAndSet(scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Формирует документ для текущей версии дерева, если он устарел.
+     */
+    void pregenerate() {
+        long version = snapshotService.getSnapshot().getVersion();
+        lock.lock();
+        try {
+            refresh(version);
+            logger.debug("Excel-документ для версии дерева {} сформирован заранее", version);
+        } catch (CategoryTreeIsEmptyException e) {
+            logger.debug("Дерево категорий пусто, Excel-документ не сформирован");
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Не удалось заранее сформировать Excel-документ", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Формирует документ, если сохраненный документ старее указанной версии, и освобождает прежний.
+     * Файл прежнего документа удаляется после закрытия всех его аренд. Вызывается под блокировкой.
+     *
+     * @param version версия дерева
+     * @return актуальный документ
+     */
+    private StoredArtifact refresh(long version) throws IOException {
+        StoredArtifact current = artifact.get();
+        if (current != null && current.version >= version) {
+            return current;
+        }
+        Path file = Files.createTempFile("categories", ".xlsx");
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            excelProcessingService.writeCategoriesExcel(outputStream);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        StoredArtifact generated = new StoredArtifact(version, file);
+        artifact.set(generated);
+        if (current != null) {
+            current.release();
+        }
+        return generated;
+    }
+
+    /**
+     * Останавливает фоновое формирование и освобождает документ.
+     * Файл удаляется сразу или после закрытия последней аренды.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        StoredArtifact current = artifact.getAndSet(null);
+        if (current != null) {
+            current.release();
+        }
+    }
+
+    /**
+     * Сформированный документ со счетчиком ссылок.
+     * Одна ссылка принадлежит сервису, пока документ актуален, остальные - открытым арендам.
+     * Когда счетчик доходит до нуля, файл документа удаляется, и документ больше нельзя арендовать.
+     */
+    private final class StoredArtifact {
+
+        private final long version;
+        private final Path file;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private volatile String fileId;
+
+        private StoredArtifact(long version, Path file) {
+            this.version = version;
+            this.file = file;
+        }
+
+        private boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Не удалось удалить файл Excel-документа {}", file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Аренда документа, удерживающая ссылку на него до закрытия.
+     * Может быть закрыта из любого потока.
+     */
+    private static final class ArtifactLease implements Lease {
+
+        private final StoredArtifact stored;
+        private final ExportArtifact leased;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ArtifactLease(StoredArtifact stored) {
+            this.stored = stored;
+            this.leased = new ExportArtifact(stored.version, stored.file, stored.fileId);
+        }
+
+        @Override
+        public ExportArtifact artifact() {
+            return leased;
+        }
+
+        @Override
+        public void rememberFileId(String fileId) {
+            stored.fileId = fileId;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                stored.release();
+            }
+        }
+    }
+}
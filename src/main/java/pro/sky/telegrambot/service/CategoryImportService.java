@@ -0,0 +1,21 @@
+package pro.sky.telegrambot.service;
+
+import pro.sky.telegrambot.model.Category;
+
+import java.util.List;
+
+/**
+ * Сервис сохранения категорий, загруженных из Excel-файла.
+ * Способ сохранения выбирается свойством {@code category.import.engine}.
+ */
+public interface CategoryImportService {
+
+    /**
+     * Сохраняет категории в одной транзакции с учетом родительских связей.
+     * Категории, уже существующие в дереве, не создаются повторно, но могут быть перенесены
+     * под родителя, указанного в файле.
+     *
+     * @param categories категории из файла; идентификаторы и родители указаны в нумерации файла
+     */
+    void importCategories(List<Category> categories);
+}
@@ -0,0 +1,15 @@
+package pro.sky.telegrambot.service;
+
+/**
+ * Сервис фонового удаления больших ветвей дерева категорий.
+ */
+public interface CategoryPurgeService {
+
+    /**
+     * Определяет, нужно ли удалять ветвь указанного размера в фоновом режиме.
+     *
+     * @param subtreeSize количество категорий в ветви
+     * @return true, если ветвь следует отсоединить и удалить в фоне
+     */
+    boolean requiresBackgroundPurge(int subtreeSize);
+}
@@ -0,0 +1,109 @@
+package pro.sky.telegrambot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pro.sky.telegrambot.event.CategorySubtreeDetachedEvent;
+import pro.sky.telegrambot.repository.CategoryRepository;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Реализация сервиса фонового удаления больших ветвей.
+ * <p>
+ * Отсоединенная ветвь удаляется одним фоновым потоком порциями ограниченного размера, начиная с самых
+ * глубоких категорий. Каждая порция удаляется в отдельной короткой транзакции, поэтому блокировки
+ * строк не удерживаются надолго и не мешают изменениям других ветвей. Ветви, удаление которых
+ * было прервано остановкой приложения, дочищаются при следующем запуске.
+ */
+@Service
+public class CategoryPurgeServiceImpl implements CategoryPurgeService {
+
+    private final CategoryRepository categoryRepository;
+    private final int backgroundThreshold;
+    private final int batchSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "category-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Logger logger = LoggerFactory.getLogger(CategoryPurgeServiceImpl.class);
+
+    public CategoryPurgeServiceImpl(CategoryRepository categoryRepository,
+                                    @Value("${category.purge.background-threshold:10000}") int backgroundThreshold,
+                                    @Value("${category.purge.batch-size:1000}") int batchSize) {
+        this.categoryRepository = categoryRepository;
+        this.backgroundThreshold = backgroundThreshold;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Определяет, превышает ли размер ветви порог фонового удаления.
+     *
+     * @param subtreeSize количество категорий в ветви
+     * @return true, если ветвь следует отсоединить и удалить в фоне
+     */
+    @Override
+    public boolean requiresBackgroundPurge(int subtreeSize) {
+        return subtreeSize >= backgroundThreshold;
+    }
+
+    /**
+     * Ставит отсоединенную ветвь в очередь на удаление после фиксации транзакции.
+     *
+     * @param event событие отсоединения ветви
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubtreeDetached(CategorySubtreeDetachedEvent event) {
+        executor.execute(() -> purge(event.getRootId(), event.getCategoryName()));
+    }
+
+    /**
+     * Возобновляет удаление ветвей, оставшихся отсоединенными после предыдущего запуска.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingPurges() {
+        for (Long rootId : categoryRepository.findDetachedRootIds()) {
+            executor.execute(() -> purge(rootId, "~" + rootId));
+        }
+    }
+
+    /**
+     * Удаляет ветвь порциями, начиная с самых глубоких категорий, и сообщает о прогрессе в лог.
+     * Порции выбираются и удаляются на стороне базы данных, поэтому память приложения
+     * не зависит от размера ветви.
+     *
+     * @param rootId идентификатор корня ветви
+     * @param name   название ветви для сообщений в логе
+     */
+    void purge(long rootId, String name) {
+        try {
+            long total = categoryRepository.countSubtree(rootId);
+            logger.info("Начато фоновое удаление ветви \"{}\": {} категорий", name, total);
+            long deleted = 0;
+            int batch;
+            while ((batch = categoryRepository.deleteSubtreeBatch(rootId, batchSize)) > 0) {
+                deleted += batch;
+                logger.info("Удаление ветви \"{}\": удалено {} из {} категорий", name, deleted, total);
+            }
+            logger.info("Фоновое удаление ветви \"{}\" завершено", name);
+        } catch (Exception e) {
+            logger.error("Ошибка фонового удаления ветви \"{}\", удаление продолжится при следующем запуске",
+                    name, e);
+        }
+    }
+
+    /**
+     * Останавливает фоновый поток при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,6 +1,11 @@
 package pro.sky.telegrambot.service;
 
 import pro.sky.telegrambot.exception.CategoryExistsException;
+import pro.sky.telegrambot.model.CategoryRemoval;
+import pro.sky.telegrambot.model.CategoryTreeLevel;
+import pro.sky.telegrambot.model.CategoryTreePage;
+
+import java.util.List;
 
 /**
  * Сервис для работы с иерархией категорий.
@@ -25,16 +30,47 @@ public interface CategoryService {
     void addChildCategory(String parentName, String childName);
 
     /**
-     * Удаляет категорию по имени.
+     * Удаляет категорию по имени вместе со всеми вложенными категориями.
      *
      * @param name название категории для удаления
+     * @return результат удаления: количество категорий и признак фонового удаления
+     */
+    CategoryRemoval removeCategory(String name);
+
+    /**
+     * Генерирует одну страницу текстового представления дерева категорий,
+     * умещающуюся в одно сообщение Telegram.
+     *
+     * @param page номер страницы, начиная с 1
+     * @return страница дерева категорий
+     */
+    CategoryTreePage viewTree(int page);
+
+    /**
+     * Генерирует одну страницу текстового представления поддерева категории, ограниченного по глубине.
+     *
+     * @param name     название начальной категории
+     * @param maxDepth количество выводимых уровней под начальной категорией
+     * @param page     номер страницы, начиная с 1
+     * @return страница поддерева категории
+     */
+    CategoryTreePage viewSubtree(String name, int maxDepth, int page);
+
+    /**
+     * Возвращает один уровень дерева: категорию и порцию её дочерних категорий.
+     *
+     * @param categoryId идентификатор категории или null для корневых категорий
+     * @param offset     порядковый номер первой дочерней категории порции
+     * @param limit      максимальное количество дочерних категорий в порции
+     * @return уровень дерева категорий
      */
-    void removeCategory(String name);
+    CategoryTreeLevel viewLevel(Long categoryId, int offset, int limit);
 
     /**
-     * Генерирует текстовое представление дерева категорий.
+     * Возвращает путь от корня дерева до категории.
      *
-     * @return форматированное строковое представление иерархии категорий
+     * @param name название категории
+     * @return названия категорий пути, начиная с корневой и заканчивая указанной
      */
-    String viewTree();
+    List<String> findPath(String name);
 }
@@ -1,15 +1,30 @@
 package pro.sky.telegrambot.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import pro.sky.telegrambot.event.CategorySubtreeDetachedEvent;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
 import pro.sky.telegrambot.exception.CategoryExistsException;
 import pro.sky.telegrambot.exception.CategoryNotFoundException;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
+import pro.sky.telegrambot.exception.TreePageNotFoundException;
 import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryRemoval;
+import pro.sky.telegrambot.model.CategoryTreeLevel;
+import pro.sky.telegrambot.model.CategoryTreePage;
+import pro.sky.telegrambot.model.CategoryTreeRow;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
 import pro.sky.telegrambot.repository.CategoryRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /**
  * Реализация сервиса для работы с иерархией категорий.
@@ -17,10 +32,32 @@ import java.util.Optional;
 @Service
 public class CategoryServiceImpl implements CategoryService {
 
+    /**
+     * Максимальная длина строк дерева на одной странице.
+     * Оставляет запас до лимита Telegram в 4096 символов под заголовок и подсказку о следующей странице.
+     */
+    static final int TREE_PAGE_LENGTH = 4000;
+
     private final CategoryRepository categoryRepository;
+    private final CategoryTreeSnapshotService snapshotService;
+    private final CategoryTreeRenderer treeRenderer;
+    private final CategoryPurgeService purgeService;
+    private final CategoryClosureService closureService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicReference<RenderedPages> renderedPages = new AtomicReference<>();
 
-    public CategoryServiceImpl(CategoryRepository categoryRepository) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository,
+                               CategoryTreeSnapshotService snapshotService,
+                               CategoryTreeRenderer treeRenderer,
+                               CategoryPurgeService purgeService,
+                               CategoryClosureService closureService,
+                               ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.snapshotService = snapshotService;
+        this.treeRenderer = treeRenderer;
+        this.purgeService = purgeService;
+        this.closureService = closureService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -37,6 +74,8 @@ public class CategoryServiceImpl implements CategoryService {
         }
         Category category = new Category(name);
         categoryRepository.save(category);
+        closureService.onCategoryAdded(category.getId(), null);
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(name));
     }
 
     /**
@@ -63,62 +102,203 @@ public class CategoryServiceImpl implements CategoryService {
         child.setParent(parent);
         parent.getChildren().add(child);
         categoryRepository.save(child);
+        closureService.onCategoryAdded(child.getId(), parent.getId());
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(childName));
     }
 
     /**
      * Удаляет категорию по имени.
-     * При удалении родительской категории также удаляются все её дочерние категории (каскадное удаление).
+     * Категория удаляется вместе со всеми дочерними категориями одним рекурсивным запросом
+     * без загрузки поддерева в память. Слишком большая ветвь только отсоединяется от дерева
+     * и удаляется в фоновом режиме, чтобы не удерживать блокировки строк. Размер ветви берется
+     * из снимка дерева, а пока снимок не загружен - из таблицы замыкания, если она включена.
      *
      * @param name имя категории для удаления
+     * @return результат удаления
      * @throws CategoryNotFoundException если категория с указанным именем не найдена
      */
     @Override
     @Transactional
-    public void removeCategory(String name) {
-        Optional<Category> deleteCategory = categoryRepository.findByName(name);
-        if (deleteCategory.isEmpty()) {
+    public CategoryRemoval removeCategory(String name) {
+        int subtreeSize = subtreeSize(name);
+        if (purgeService.requiresBackgroundPurge(subtreeSize)) {
+            Category category = categoryRepository.findByName(name)
+                    .orElseThrow(() -> new CategoryNotFoundException("Категория \"" + name + "\" не найдена"));
+            categoryRepository.detachById(category.getId());
+            eventPublisher.publishEvent(new CategoryTreeChangedEvent(name));
+            eventPublisher.publishEvent(new CategorySubtreeDetachedEvent(category.getId(), name, subtreeSize));
+            return new CategoryRemoval(subtreeSize, true);
+        }
+        int removed = categoryRepository.deleteSubtreeByName(name);
+        if (removed == 0) {
             throw new CategoryNotFoundException("Категория \"" + name + "\" не найдена");
         }
-        categoryRepository.delete(deleteCategory.get());
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(name));
+        return new CategoryRemoval(removed, false);
     }
 
     /**
-     * Возвращает строковое представление всего дерева категорий.
-     * Дерево отображается в виде иерархической структуры с отступами для вложенных категорий.
+     * Подсчитывает размер ветви категории.
+     * Пока снимок дерева не загружен, а таблица замыкания включена, ветвь подсчитывается одним
+     * запросом по таблице замыкания без загрузки всего дерева.
      *
-     * @return строковое представление дерева категорий
+     * @param name название категории
+     * @return количество категорий ветви или 0, если категория не найдена
+     */
+    private int subtreeSize(String name) {
+        Optional<CategoryTreeSnapshot> loaded = snapshotService.findLoadedSnapshot();
+        if (loaded.isEmpty() && closureService.isEnabled()) {
+            return closureService.countSubtree(name);
+        }
+        CategoryTreeSnapshot snapshot = loaded.orElseGet(snapshotService::getSnapshot);
+        int node = snapshot.indexOf(name);
+        return node != CategoryTreeSnapshot.NO_NODE ? snapshot.subtreeSize(node) : 0;
+    }
+
+    /**
+     * Генерирует одну страницу текстового представления дерева категорий.
+     * Дерево строится по снимку в памяти, без обращений к базе данных.
+     * Построенные страницы кешируются до изменения версии дерева, а при изменении
+     * перестраиваются только затронутые ветви.
+     *
+     * @param page номер страницы, начиная с 1
+     * @return страница дерева категорий
      * @throws CategoryTreeIsEmptyException если дерево категорий пустое
+     * @throws TreePageNotFoundException    если страницы с таким номером нет
      */
     @Override
-    @Transactional
-    public String viewTree() {
-        List<Category> roots = categoryRepository.findAllByParentIsNull();
-        if (roots.isEmpty()) {
+    public CategoryTreePage viewTree(int page) {
+        CategoryTreeSnapshot snapshot = snapshotService.getSnapshot();
+        if (snapshot.isEmpty()) {
             throw new CategoryTreeIsEmptyException("Дерево категорий пусто.");
         }
-        StringBuilder sb = new StringBuilder("Дерево категорий:\n");
-        for (Category parent : roots) {
-            buildTreeCategory(parent, 0, sb);
+        RenderedPages pages = renderedPages.get();
+        if (pages == null || pages.version() < snapshot.getVersion()) {
+            pages = renderedPages.accumulateAndGet(
+                    new RenderedPages(snapshot.getVersion(), new ConcurrentHashMap<>()),
+                    (current, next) -> current != null && current.version() >= next.version() ? current : next);
         }
-        return sb.toString();
+        if (pages.version() != snapshot.getVersion()) {
+            // устаревший снимок не должен попадать в кеш страниц
+            return treeRenderer.renderPage(snapshot, page, TREE_PAGE_LENGTH);
+        }
+        return pages.pages().computeIfAbsent(page, number ->
+                treeRenderer.renderPage(snapshot, number, TREE_PAGE_LENGTH));
     }
 
     /**
-     * Рекурсивно строит строковое представление дерева категорий.
+     * Генерирует одну страницу поддерева категории, ограниченного по глубине.
+     * Категория находится по индексу названий в снимке, а обходятся только узлы ограниченной области.
+     * Пока снимок не загружен, а таблица замыкания включена, загружается только ограниченная область
+     * поддерева одним запросом по таблице замыкания.
      *
-     * @param category текущая категория для обработки
-     * @param indent   уровень вложенности (для отступов)
-     * @param sb       StringBuilder для накопления результата
+     * @param name     название начальной категории
+     * @param maxDepth количество выводимых уровней под начальной категорией
+     * @param page     номер страницы, начиная с 1
+     * @return страница поддерева категории
+     * @throws CategoryNotFoundException если категория с указанным именем не найдена
+     * @throws TreePageNotFoundException если страницы с таким номером нет
      */
-    private void buildTreeCategory(Category category, int indent, StringBuilder sb) {
-        sb.append("  ".repeat(indent)).append("- ").append(category.getName()).append("\n");
-        List<Category> children = category.getChildren();
-        if (children != null) {
-            for (Category child : children) {
-                buildTreeCategory(child, indent + 1, sb);
+    @Override
+    public CategoryTreePage viewSubtree(String name, int maxDepth, int page) {
+        Optional<CategoryTreeSnapshot> loaded = snapshotService.findLoadedSnapshot();
+        if (loaded.isEmpty() && closureService.isEnabled()) {
+            List<CategoryTreeRow> rows = closureService.findSubtree(name, maxDepth);
+            if (rows.isEmpty()) {
+                throw new CategoryNotFoundException("Категория \"" + name + "\" не найдена");
             }
+            // наименьшая версия: фрагменты временного снимка поддерева не попадают в кеш построителя
+            CategoryTreeSnapshot subtree = CategoryTreeSnapshot.of(Long.MIN_VALUE, rows);
+            return treeRenderer.renderSubtreePage(subtree, subtree.root(0), maxDepth, page, TREE_PAGE_LENGTH);
+        }
+        CategoryTreeSnapshot snapshot = loaded.orElseGet(snapshotService::getSnapshot);
+        int node = snapshot.indexOf(name);
+        if (node == CategoryTreeSnapshot.NO_NODE) {
+            throw new CategoryNotFoundException("Категория \"" + name + "\" не найдена");
         }
+        return treeRenderer.renderSubtreePage(snapshot, node, maxDepth, page, TREE_PAGE_LENGTH);
+    }
+
+    /**
+     * Возвращает один уровень дерева из снимка в памяти.
+     * Обходятся только дочерние категории из запрошенной порции, поэтому стоимость запроса
+     * зависит от размера порции, а не от размера дерева.
+     *
+     * @param categoryId идентификатор категории или null для корневых категорий
+     * @param offset     порядковый номер первой дочерней категории порции
+     * @param limit      максимальное количество дочерних категорий в порции
+     * @return уровень дерева категорий
+     * @throws CategoryNotFoundException если категория с указанным идентификатором не найдена
+     */
+    @Override
+    public CategoryTreeLevel viewLevel(Long categoryId, int offset, int limit) {
+        CategoryTreeSnapshot snapshot = snapshotService.getSnapshot();
+        int node = CategoryTreeSnapshot.NO_NODE;
+        if (categoryId != null) {
+            node = snapshot.indexOfId(categoryId);
+            if (node == CategoryTreeSnapshot.NO_NODE) {
+                throw new CategoryNotFoundException("Категория не найдена, возможно она была удалена");
+            }
+        }
+        int childCount = node == CategoryTreeSnapshot.NO_NODE ? snapshot.rootCount() : snapshot.childCount(node);
+        int from = Math.max(0, Math.min(offset, childCount));
+        int to = Math.min(childCount, from + limit);
+        List<CategoryTreeLevel.Child> children = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int child = node == CategoryTreeSnapshot.NO_NODE ? snapshot.root(i) : snapshot.child(node, i);
+            children.add(new CategoryTreeLevel.Child(snapshot.id(child), snapshot.name(child),
+                    snapshot.childCount(child) > 0));
+        }
+        if (node == CategoryTreeSnapshot.NO_NODE) {
+            return new CategoryTreeLevel(null, null, null, children, from, childCount);
+        }
+        int parent = snapshot.parent(node);
+        return new CategoryTreeLevel(categoryId, snapshot.name(node),
+                parent == CategoryTreeSnapshot.NO_NODE ? null : snapshot.id(parent), children, from, childCount);
     }
-}
 
+    /**
+     * Возвращает путь от корня дерева до категории.
+     * Если снимок дерева уже загружен, путь строится по ссылкам на родителей в памяти
+     * без обращений к базе данных. Иначе путь загружается одним запросом по таблице замыкания,
+     * если она включена, или по материализованному пути.
+     *
+     * @param name название категории
+     * @return названия категорий пути, начиная с корневой и заканчивая указанной
+     * @throws CategoryNotFoundException если категория с указанным именем не найдена
+     */
+    @Override
+    public List<String> findPath(String name) {
+        Optional<CategoryTreeSnapshot> loaded = snapshotService.findLoadedSnapshot();
+        List<String> path;
+        if (loaded.isPresent()) {
+            CategoryTreeSnapshot snapshot = loaded.get();
+            path = new ArrayList<>();
+            for (int node = snapshot.indexOf(name); node != CategoryTreeSnapshot.NO_NODE;
+                 node = snapshot.parent(node)) {
+                path.add(snapshot.name(node));
+            }
+            Collections.reverse(path);
+        } else {
+            List<CategoryTreeRow> ancestors = closureService.isEnabled()
+                    ? closureService.findAncestors(name)
+                    : categoryRepository.findAncestors(name);
+            path = ancestors.stream()
+                    .map(CategoryTreeRow::getName)
+                    .collect(Collectors.toList());
+        }
+        if (path.isEmpty()) {
+            throw new CategoryNotFoundException("Категория \"" + name + "\" не найдена");
+        }
+        return path;
+    }
 
+    /**
+     * Страницы дерева категорий, построенные для определенной версии дерева.
+     *
+     * @param version версия дерева
+     * @param pages   построенные страницы по номерам
+     */
+    private record RenderedPages(long version, Map<Integer, CategoryTreePage> pages) {
+    }
+}
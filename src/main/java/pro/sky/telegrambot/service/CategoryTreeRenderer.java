@@ -0,0 +1,352 @@
+package pro.sky.telegrambot.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.exception.TreePageNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreePage;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+import pro.sky.telegrambot.util.Rope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Построитель текстового представления дерева категорий с запоминанием фрагментов поддеревьев.
+ * <p>
+ * Для каждой категории, у которой есть дочерние, хранится готовый текст её поддерева; строки листьев
+ * входят в текст родителя и отдельно не запоминаются. Фрагменты хранятся в массиве по индексам узлов
+ * снимка, поэтому кеш растет пропорционально снимку, без упакованных ключей и записей хеш-таблицы.
+ * Изменение дерева сбрасывает фрагменты только у измененных категорий и их предков, поэтому следующее
+ * построение заново собирает лишь затронутые ветви, а остальные фрагменты переиспользует без копирования
+ * через {@link Rope}.
+ */
+@Component
+public class CategoryTreeRenderer {
+
+    /**
+     * Глубина, означающая вывод поддерева без ограничения.
+     */
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private Rope[] fragments = new Rope[0];
+    private CategoryTreeSnapshot memoSnapshot;
+    private long memoVersion = -1;
+
+    /**
+     * Строит текстовое представление всего дерева категорий.
+     *
+     * @param snapshot снимок дерева категорий
+     * @return текст дерева: по строке на категорию с отступом по уровню вложенности
+     */
+    public synchronized Rope render(CategoryTreeSnapshot snapshot) {
+        Rope[] memo = memo(snapshot);
+        List<Rope> parts = new ArrayList<>();
+        StringBuilder leaves = new StringBuilder();
+        for (int i = 0; i < snapshot.rootCount(); i++) {
+            int root = snapshot.root(i);
+            if (snapshot.childCount(root) == 0) {
+                appendLine(leaves, snapshot, root, 0);
+            } else {
+                flush(parts, leaves);
+                parts.add(fragment(snapshot, root, 0, memo));
+            }
+        }
+        flush(parts, leaves);
+        return Rope.concat(parts);
+    }
+
+    /**
+     * Строит одну страницу текстового представления дерева категорий.
+     * <p>
+     * Строки раскладываются по страницам жадно и никогда не разрываются; строка длиннее страницы
+     * обрезается и занимает страницу целиком. Обход останавливается сразу после запрошенной страницы,
+     * а предыдущие страницы только подсчитываются без построения текста. Запомненные фрагменты,
+     * целиком помещающиеся на текущую страницу, учитываются без обхода их узлов, а фрагменты поддеревьев,
+     * пройденных до конца страницы, запоминаются по ходу обхода. Поэтому стоимость страницы зависит
+     * от объема дерева до её конца, а не от размера всего дерева.
+     *
+     * @param snapshot   снимок дерева категорий
+     * @param pageNumber номер страницы, начиная с 1
+     * @param pageLength максимальная длина текста страницы в символах
+     * @return запрошенная страница
+     * @throws TreePageNotFoundException если страницы с таким номером нет
+     */
+    public CategoryTreePage renderPage(CategoryTreeSnapshot snapshot, int pageNumber, int pageLength) {
+        int[] roots = new int[snapshot.rootCount()];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = snapshot.root(i);
+        }
+        return renderPage(snapshot, roots, UNLIMITED_DEPTH, pageNumber, pageLength);
+    }
+
+    /**
+     * Строит одну страницу текстового представления поддерева категории, ограниченного по глубине.
+     * Обходятся только узлы внутри ограниченной области; категория выводится без отступа,
+     * как корень дерева.
+     *
+     * @param snapshot   снимок дерева категорий
+     * @param node       индекс узла начальной категории
+     * @param maxDepth   количество выводимых уровней под начальной категорией
+     * @param pageNumber номер страницы, начиная с 1
+     * @param pageLength максимальная длина текста страницы в символах
+     * @return запрошенная страница
+     * @throws TreePageNotFoundException если страницы с таким номером нет
+     */
+    public CategoryTreePage renderSubtreePage(CategoryTreeSnapshot snapshot, int node, int maxDepth,
+                                              int pageNumber, int pageLength) {
+        return renderPage(snapshot, new int[]{node}, maxDepth, pageNumber, pageLength);
+    }
+
+    /**
+     * Раскладывает строки поддеревьев начальных узлов по страницам и возвращает запрошенную.
+     * Запомненные фрагменты построены для полного дерева, поэтому используются только без ограничения глубины
+     * и только если начальные узлы - корни дерева, то есть отступы фрагментов совпадают с выводимыми.
+     * Поддерево, пройденное построчно до конца, сразу собирается во фрагмент из фрагментов дочерних категорий.
+     */
+    private synchronized CategoryTreePage renderPage(CategoryTreeSnapshot snapshot, int[] starts, int maxDepth,
+                                        int pageNumber, int pageLength) {
+        if (pageNumber < 1) {
+            throw new TreePageNotFoundException("Номер страницы должен быть положительным.");
+        }
+        boolean useFragments = maxDepth == UNLIMITED_DEPTH
+                && Arrays.stream(starts).allMatch(start -> snapshot.parent(start) == CategoryTreeSnapshot.NO_NODE);
+        Rope[] memo = useFragments ? memo(snapshot) : null;
+        StringBuilder text = new StringBuilder();
+        int page = 1;
+        int used = 0;
+        List<int[]> stack = new ArrayList<>();
+        for (int i = starts.length - 1; i >= 0; i--) {
+            stack.add(new int[]{starts[i], 0, 0});
+        }
+        while (!stack.isEmpty()) {
+            int[] entry = stack.remove(stack.size() - 1);
+            int node = entry[0];
+            int depth = entry[1];
+            if (entry[2] == 1) {
+                if (memo[node] == null) {
+                    memo[node] = assemble(snapshot, node, depth, memo);
+                }
+                continue;
+            }
+            Rope fragment = memo != null ? memo[node] : null;
+            if (fragment != null && used + fragment.length() <= pageLength) {
+                if (page == pageNumber) {
+                    fragment.appendTo(text);
+                }
+                used += fragment.length();
+                continue;
+            }
+            int lineLength = 2 * depth + snapshot.nameLength(node) + 3;
+            if (used > 0 && used + lineLength > pageLength) {
+                if (page == pageNumber) {
+                    return new CategoryTreePage(pageNumber, text.toString(), true);
+                }
+                page++;
+                used = 0;
+            }
+            if (page == pageNumber) {
+                appendPageLine(text, snapshot, node, depth, pageLength);
+            }
+            used += Math.min(lineLength, pageLength);
+            if (depth < maxDepth) {
+                if (memo != null && snapshot.childCount(node) > 0) {
+                    stack.add(new int[]{node, depth, 1});
+                }
+                for (int i = snapshot.childCount(node) - 1; i >= 0; i--) {
+                    stack.add(new int[]{snapshot.child(node, i), depth + 1, 0});
+                }
+            }
+        }
+        if (page < pageNumber) {
+            throw new TreePageNotFoundException("Страница " + pageNumber + " не найдена. Всего страниц: " + page + ".");
+        }
+        return new CategoryTreePage(pageNumber, text.toString(), false);
+    }
+
+    /**
+     * Переносит фрагменты на новый снимок и сбрасывает фрагменты, затронутые изменением дерева.
+     * Для каждой измененной категории сбрасываются она сама и все её предки как в прежнем,
+     * так и в новом снимке; у перемещенных категорий сбрасывается всё прежнее поддерево, так как
+     * меняются его отступы. Фрагменты удаленных категорий не переносятся.
+     * Если изменения неизвестны или пропущена промежуточная версия, сбрасываются все фрагменты.
+     *
+     * @param event событие публикации нового снимка
+     */
+    @EventListener
+    public synchronized void onSnapshotUpdated(CategoryTreeSnapshotUpdatedEvent event) {
+        CategoryTreeSnapshot previous = event.getPrevious();
+        CategoryTreeSnapshot current = event.getCurrent();
+        if (current.getVersion() < memoVersion) {
+            return;
+        }
+        Rope[] next = new Rope[current.size()];
+        if (previous != null && previous == memoSnapshot && current.getVersion() == previous.getVersion() + 1
+                && !event.getChangedNames().isEmpty()) {
+            for (String name : event.getChangedNames()) {
+                int oldNode = previous.indexOf(name);
+                int newNode = current.indexOf(name);
+                if (oldNode != CategoryTreeSnapshot.NO_NODE && newNode != CategoryTreeSnapshot.NO_NODE
+                        && !sameParent(previous, oldNode, current, newNode)) {
+                    invalidateSubtree(previous, fragments, oldNode);
+                }
+                invalidateAncestors(previous, fragments, oldNode);
+            }
+            for (int node = 0; node < fragments.length; node++) {
+                if (fragments[node] != null) {
+                    int moved = current.indexOfId(previous.id(node));
+                    if (moved != CategoryTreeSnapshot.NO_NODE) {
+                        next[moved] = fragments[node];
+                    }
+                }
+            }
+            for (String name : event.getChangedNames()) {
+                invalidateAncestors(current, next, current.indexOf(name));
+            }
+        }
+        fragments = next;
+        memoSnapshot = current;
+        memoVersion = current.getVersion();
+    }
+
+    /**
+     * Возвращает запомненный фрагмент поддерева категории.
+     *
+     * @param categoryId идентификатор категории
+     * @return текст поддерева или null, если фрагмент не построен, сброшен или категория - лист
+     */
+    synchronized Rope cachedFragment(long categoryId) {
+        if (memoSnapshot == null) {
+            return null;
+        }
+        int node = memoSnapshot.indexOfId(categoryId);
+        return node != CategoryTreeSnapshot.NO_NODE ? fragments[node] : null;
+    }
+
+    /**
+     * @return количество запомненных фрагментов
+     */
+    synchronized int cachedFragmentCount() {
+        int count = 0;
+        for (Rope fragment : fragments) {
+            if (fragment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает массив фрагментов для снимка. Для более нового снимка заводится пустой массив,
+     * а для устаревшего - временный, чтобы его фрагменты не попадали в общий кеш.
+     */
+    private Rope[] memo(CategoryTreeSnapshot snapshot) {
+        if (snapshot == memoSnapshot) {
+            return fragments;
+        }
+        if (snapshot.getVersion() < memoVersion) {
+            return new Rope[snapshot.size()];
+        }
+        fragments = new Rope[snapshot.size()];
+        memoSnapshot = snapshot;
+        memoVersion = snapshot.getVersion();
+        return fragments;
+    }
+
+    /**
+     * Возвращает текст поддерева, перестраивая только отсутствующие фрагменты.
+     * Узлы для перестроения собираются обходом в прямом порядке, а собираются в обратном,
+     * поэтому фрагменты дочерних категорий всегда готовы раньше родительских.
+     */
+    private Rope fragment(CategoryTreeSnapshot snapshot, int node, int depth, Rope[] memo) {
+        List<int[]> stale = new ArrayList<>();
+        List<int[]> stack = new ArrayList<>();
+        stack.add(new int[]{node, depth});
+        while (!stack.isEmpty()) {
+            int[] entry = stack.remove(stack.size() - 1);
+            if (memo[entry[0]] != null || snapshot.childCount(entry[0]) == 0) {
+                continue;
+            }
+            stale.add(entry);
+            for (int i = 0; i < snapshot.childCount(entry[0]); i++) {
+                stack.add(new int[]{snapshot.child(entry[0], i), entry[1] + 1});
+            }
+        }
+        for (int i = stale.size() - 1; i >= 0; i--) {
+            int staleNode = stale.get(i)[0];
+            memo[staleNode] = assemble(snapshot, staleNode, stale.get(i)[1], memo);
+        }
+        return memo[node];
+    }
+
+    /**
+     * Собирает текст поддерева из строки категории, строк дочерних листьев и фрагментов остальных
+     * дочерних категорий. Подряд идущие строки объединяются в один фрагмент.
+     */
+    private static Rope assemble(CategoryTreeSnapshot snapshot, int node, int depth, Rope[] memo) {
+        List<Rope> parts = new ArrayList<>();
+        StringBuilder lines = new StringBuilder();
+        appendLine(lines, snapshot, node, depth);
+        for (int i = 0; i < snapshot.childCount(node); i++) {
+            int child = snapshot.child(node, i);
+            if (snapshot.childCount(child) == 0) {
+                appendLine(lines, snapshot, child, depth + 1);
+            } else {
+                flush(parts, lines);
+                parts.add(memo[child]);
+            }
+        }
+        flush(parts, lines);
+        return Rope.concat(parts);
+    }
+
+    private static void flush(List<Rope> parts, StringBuilder lines) {
+        if (lines.length() > 0) {
+            parts.add(Rope.of(lines.toString()));
+            lines.setLength(0);
+        }
+    }
+
+    private static void appendLine(StringBuilder text, CategoryTreeSnapshot snapshot, int node, int depth) {
+        text.append("  ".repeat(depth)).append("- ").append(snapshot.name(node)).append('\n');
+    }
+
+    private static void appendPageLine(StringBuilder text, CategoryTreeSnapshot snapshot, int node, int depth,
+                                       int pageLength) {
+        String line = "  ".repeat(depth) + "- " + snapshot.name(node);
+        if (line.length() + 1 > pageLength) {
+            line = line.substring(0, pageLength - 1);
+        }
+        text.append(line).append('\n');
+    }
+
+    private static boolean sameParent(CategoryTreeSnapshot previous, int oldNode,
+                                      CategoryTreeSnapshot current, int newNode) {
+        int oldParent = previous.parent(oldNode);
+        int newParent = current.parent(newNode);
+        if (oldParent == CategoryTreeSnapshot.NO_NODE || newParent == CategoryTreeSnapshot.NO_NODE) {
+            return oldParent == newParent;
+        }
+        return previous.id(oldParent) == current.id(newParent);
+    }
+
+    private static void invalidateAncestors(CategoryTreeSnapshot snapshot, Rope[] memo, int node) {
+        for (int i = node; i != CategoryTreeSnapshot.NO_NODE; i = snapshot.parent(i)) {
+            memo[i] = null;
+        }
+    }
+
+    private static void invalidateSubtree(CategoryTreeSnapshot snapshot, Rope[] memo, int node) {
+        int[] stack = new int[snapshot.subtreeSize(node)];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            memo[current] = null;
+            for (int i = 0; i < snapshot.childCount(current); i++) {
+                stack[top++] = snapshot.child(current, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pro.sky.telegrambot.service;
+
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+
+import java.util.Optional;
+
+/**
+ * Сервис, хранящий актуальный снимок дерева категорий в памяти.
+ */
+public interface CategoryTreeSnapshotService {
+
+    /**
+     * Возвращает текущий снимок дерева категорий.
+     * Если снимок еще не загружен, загружает его из базы данных.
+     *
+     * @return неизменяемый снимок дерева категорий
+     */
+    CategoryTreeSnapshot getSnapshot();
+
+    /**
+     * Возвращает текущий снимок дерева категорий, не загружая его из базы данных.
+     *
+     * @return снимок дерева или пустой Optional, если снимок еще не загружен
+     */
+    Optional<CategoryTreeSnapshot> findLoadedSnapshot();
+}
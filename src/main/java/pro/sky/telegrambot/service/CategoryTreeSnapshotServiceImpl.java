@@ -0,0 +1,108 @@
+package pro.sky.telegrambot.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+import pro.sky.telegrambot.repository.CategoryRepository;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Реализация сервиса снимков дерева категорий.
+ * Снимок публикуется через атомарную ссылку: чтение не требует блокировок и обращений к базе данных,
+ * а каждое изменение дерева после фиксации транзакции заменяет снимок целиком (copy-on-write).
+ * <p>
+ * Новый снимок строится заново по результату {@link CategoryRepository#findTree()}, поэтому каждое
+ * изменение стоит одного запроса и O(N) работы. Снимок хранится в плотных массивах, и его точечное
+ * изменение все равно потребовало бы копирования всех массивов, а полная загрузка к тому же
+ * учитывает изменения, сделанные импортом и фоновой очисткой в обход сервиса категорий.
+ */
+@Service
+public class CategoryTreeSnapshotServiceImpl implements CategoryTreeSnapshotService {
+
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<CategoryTreeSnapshot> snapshot = new AtomicReference<>();
+
+    public CategoryTreeSnapshotServiceImpl(CategoryRepository categoryRepository,
+                                           ApplicationEventPublisher eventPublisher) {
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Возвращает текущий снимок дерева категорий, при первом обращении загружая его из базы данных.
+     *
+     * @return неизменяемый снимок дерева категорий
+     */
+    @Override
+    public CategoryTreeSnapshot getSnapshot() {
+        CategoryTreeSnapshot current = snapshot.get();
+        if (current != null) {
+            return current;
+        }
+        return publish(load(version.get()), Set.of());
+    }
+
+    /**
+     * Возвращает текущий снимок дерева категорий, если он уже загружен.
+     *
+     * @return снимок дерева или пустой Optional
+     */
+    @Override
+    public Optional<CategoryTreeSnapshot> findLoadedSnapshot() {
+        return Optional.ofNullable(snapshot.get());
+    }
+
+    /**
+     * Обновляет снимок после фиксации транзакции, изменившей дерево категорий.
+     * Если изменение выполнялось вне транзакции, снимок обновляется сразу.
+     *
+     * @param event событие изменения дерева
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryTreeChanged(CategoryTreeChangedEvent event) {
+        publish(load(version.incrementAndGet()), event.getCategoryNames());
+    }
+
+    /**
+     * Загружает снимок дерева категорий из базы данных.
+     *
+     * @param treeVersion версия дерева, которой будет соответствовать снимок
+     * @return новый снимок
+     */
+    private CategoryTreeSnapshot load(long treeVersion) {
+        return CategoryTreeSnapshot.of(treeVersion, categoryRepository.findTree());
+    }
+
+    /**
+     * Атомарно заменяет текущий снимок, если новый снимок не старее уже опубликованного,
+     * и сообщает об этом производным кешам.
+     *
+     * @param loaded       загруженный снимок
+     * @param changedNames названия измененных категорий
+     * @return актуальный снимок после публикации
+     */
+    private CategoryTreeSnapshot publish(CategoryTreeSnapshot loaded, Set<String> changedNames) {
+        CategoryTreeSnapshot previous = snapshot.getAndAccumulate(loaded, CategoryTreeSnapshotServiceImpl::newer);
+        CategoryTreeSnapshot current = newer(previous, loaded);
+        if (current != previous) {
+            eventPublisher.publishEvent(new CategoryTreeSnapshotUpdatedEvent(previous, current, changedNames));
+        }
+        return current;
+    }
+
+    /**
+     * Выбирает более новый из двух снимков.
+     */
+    private static CategoryTreeSnapshot newer(CategoryTreeSnapshot current, CategoryTreeSnapshot next) {
+        return current != null && current.getVersion() > next.getVersion() ? current : next;
+    }
+}
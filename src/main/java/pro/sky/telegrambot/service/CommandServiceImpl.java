@@ -1,8 +1,9 @@
 package pro.sky.telegrambot.service;
 
-import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.CallbackQuery;
 import com.pengrad.telegrambot.model.Message;
 import com.pengrad.telegrambot.model.Update;
+import com.pengrad.telegrambot.request.AnswerCallbackQuery;
 import com.pengrad.telegrambot.request.SendMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,19 +27,22 @@ import java.util.stream.Collectors;
 public class CommandServiceImpl implements CommandService {
 
     private final Map<NamesCommand, Command> commands;
-    private final TelegramBot telegramBot;
+    private final Map<String, CallbackHandler> callbackHandlers;
+    private final TelegramSender telegramSender;
     private final UploadCommand uploadCommand;
     private final Logger logger = LoggerFactory.getLogger(CommandServiceImpl.class);
 
     /**
      * Конструктор с внедрением зависимостей.
      *
-     * @param telegramBot   клиент Telegram бота
-     * @param commandList   список всех доступных команд
-     * @param uploadCommand обработчик команды загрузки
+     * @param telegramSender   сервис отправки сообщений в Telegram
+     * @param commandList      список всех доступных команд
+     * @param uploadCommand    обработчик команды загрузки
+     * @param callbackHandlers список обработчиков нажатий на кнопки inline-клавиатуры
      */
-    public CommandServiceImpl(TelegramBot telegramBot, List<Command> commandList, UploadCommand uploadCommand) {
-        this.telegramBot = telegramBot;
+    public CommandServiceImpl(TelegramSender telegramSender, List<Command> commandList, UploadCommand uploadCommand,
+                              List<CallbackHandler> callbackHandlers) {
+        this.telegramSender = telegramSender;
         this.commands = commandList.stream()
                 .collect(Collectors.toMap(
                         Command::getNameCommand,
@@ -46,12 +50,20 @@ public class CommandServiceImpl implements CommandService {
                         (existing, replacement) -> existing
                 ));
         this.uploadCommand = uploadCommand;
+        this.callbackHandlers = callbackHandlers.stream()
+                .collect(Collectors.toMap(
+                        CallbackHandler::getCallbackPrefix,
+                        Function.identity(),
+                        (existing, replacement) -> existing
+                ));
     }
 
     /**
      * Обрабатывает входящее обновление от Telegram API.
      * Определяет тип сообщения (документ или текст) и направляет соответствующему обработчику.
+     * Нажатия на кнопки inline-клавиатуры направляются обработчику по префиксу данных кнопки.
      * Обрабатывает исключения и отправляет пользователю информативные сообщения об ошибках.
+     * Ответы ставятся в очередь отправки, поток обработки не ждет ответа Telegram.
      *
      * @param update обновление от Telegram API
      */
@@ -65,19 +77,45 @@ public class CommandServiceImpl implements CommandService {
                 } else if (message.text() != null && message.text().startsWith("/")) {
                     handleText(message, chatId);
                 } else {
-                    telegramBot.execute(new SendMessage(chatId, "Я понимаю только команды. Введите " +
+                    telegramSender.send(new SendMessage(chatId, "Я понимаю только команды. Введите " +
                             "/help для справки."));
                 }
             } catch (ElementNameQuotesRequiredException e) {
-                telegramBot.execute(new SendMessage(chatId, "Ошибка: " + e.getMessage()));
+                telegramSender.send(new SendMessage(chatId, "Ошибка: " + e.getMessage()));
             } catch (IOException e) {
                 logger.error("Ошибка обработки обновления: {}", update, e);
-                telegramBot.execute(new SendMessage(chatId, "Произошла непредвиденная ошибка " +
+                telegramSender.send(new SendMessage(chatId, "Произошла непредвиденная ошибка " +
                         "при обработку Excel документа."));
             } catch (Exception e) {
                 logger.error("Ошибка обработки обновления: {}", update, e);
-                telegramBot.execute(new SendMessage(chatId, "Произошла непредвиденная ошибка при обработке запроса."));
+                telegramSender.send(new SendMessage(chatId, "Произошла непредвиденная ошибка при обработке запроса."));
+            }
+        } else if (update.callbackQuery() != null) {
+            handleCallback(update.callbackQuery());
+        }
+    }
+
+    /**
+     * Обрабатывает нажатие на кнопку inline-клавиатуры.
+     * Исходное сообщение редактируется на месте, а на запрос всегда отправляется ответ,
+     * чтобы клиент Telegram перестал показывать индикатор загрузки.
+     *
+     * @param callbackQuery нажатие на кнопку
+     */
+    private void handleCallback(CallbackQuery callbackQuery) {
+        try {
+            String data = callbackQuery.data();
+            Message message = callbackQuery.message();
+            int separator = data != null ? data.indexOf(':') : -1;
+            CallbackHandler handler = separator > 0 ? callbackHandlers.get(data.substring(0, separator)) : null;
+            if (handler != null && message != null) {
+                telegramSender.send(handler.handleCallback(message.chat().id(), message.messageId(),
+                        data.substring(separator + 1)));
             }
+        } catch (Exception e) {
+            logger.error("Ошибка обработки нажатия на кнопку: {}", callbackQuery, e);
+        } finally {
+            telegramSender.send(new AnswerCallbackQuery(callbackQuery.id()));
         }
     }
 
@@ -99,44 +137,59 @@ public class CommandServiceImpl implements CommandService {
      * @param chatId  идентификатор чата
      */
     private void handleText(Message message, Long chatId) {
-        List<String> arguments = parseMessageArguments(message.text());
-        String commandName = arguments.get(0);
-        NamesCommand namesCommand = NamesCommand.fromString(commandName).
-                orElse(null);
-        if (namesCommand != null) {
-            Command command = commands.get(namesCommand);
+        List<String> tokens = splitMessage(message.text());
+        Command command = NamesCommand.fromString(tokens.get(0))
+                .map(commands::get)
+                .orElse(null);
+        List<String> arguments = parseMessageArguments(tokens, command);
+        if (command != null) {
             SendMessage response = command.execute(chatId, arguments);
-            telegramBot.execute(response);
+            telegramSender.send(response);
         } else {
-            telegramBot.execute(new SendMessage(chatId, "Я понимаю только команды. Введите " +
+            telegramSender.send(new SendMessage(chatId, "Я понимаю только команды. Введите " +
                     "/help для справки."));
         }
     }
 
     /**
-     * Парсит аргументы команды из текста сообщения.
+     * Разбивает текст сообщения на имя команды и аргументы, сохраняя кавычки.
      *
-     * @param messageText текст сообщения для парсинга
+     * @param messageText текст сообщения для разбиения
+     * @return список частей сообщения (первый элемент - имя команды)
+     */
+    private List<String> splitMessage(String messageText) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = Pattern.compile("([^\"'\\s]+|\"[^\"]*\"|'[^']*')").matcher(messageText.trim());
+        while (m.find()) {
+            tokens.add(m.group(1));
+        }
+        return tokens;
+    }
+
+    /**
+     * Парсит аргументы команды и снимает с них кавычки.
+     * Без кавычек допускаются только аргументы, которые разрешает сама команда
+     * (например, номер страницы в /viewTree).
+     *
+     * @param tokens  части сообщения (первый элемент - имя команды)
+     * @param command команда или null, если команда не найдена
      * @return список аргументов (первый элемент - имя команды)
      * @throws ElementNameQuotesRequiredException если элементы не заключены в кавычки
      */
-    private List<String> parseMessageArguments(String messageText) {
+    private List<String> parseMessageArguments(List<String> tokens, Command command) {
         List<String> arguments = new ArrayList<>();
-        Matcher m = Pattern.compile("([^\"'\\s]+|\"[^\"]*\"|'[^']*')").matcher(messageText.trim());
-
-        while (m.find()) {
-            String arg = m.group(1);
-            if (arguments.isEmpty()) {
+        arguments.add(tokens.get(0));
+        for (String arg : tokens.subList(1, tokens.size())) {
+            if ((arg.startsWith("\"") && arg.endsWith("\"")) ||
+                    (arg.startsWith("'") && arg.endsWith("'"))) {
+                arguments.add(arg.substring(1, arg.length() - 1));
+            } else if (command != null && command.acceptsUnquoted(arg)) {
                 arguments.add(arg);
-                continue;
-            }
-            if (!(arg.startsWith("\"") && arg.endsWith("\"")) &&
-                    !(arg.startsWith("'") && arg.endsWith("'"))) {
+            } else {
                 throw new ElementNameQuotesRequiredException(
                         "Элемент \"" + arg + "\" должен быть заключен в кавычки.\n" +
                                 "Пример: /addElement \"" + arg + "\"");
             }
-            arguments.add(arg.substring(1, arg.length() - 1));
         }
         return arguments;
     }
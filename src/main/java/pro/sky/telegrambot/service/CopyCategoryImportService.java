@@ -0,0 +1,58 @@
+package pro.sky.telegrambot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
+import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.repository.CategoryImportRepository;
+
+import java.util.List;
+
+/**
+ * Массовое сохранение загруженных категорий через {@code COPY} PostgreSQL
+ * ({@code category.import.engine=copy}).
+ * <p>
+ * Строки файла передаются в базу данных одним потоком, а сопоставление с существующими
+ * категориями и установка родителей выполняются запросами над множествами строк,
+ * поэтому время загрузки почти не зависит от количества обращений к базе данных.
+ * Таблица замыкания после загрузки перестраивается целиком.
+ */
+@Service
+@ConditionalOnProperty(name = "category.import.engine", havingValue = "copy")
+public class CopyCategoryImportService implements CategoryImportService {
+
+    private final CategoryImportRepository importRepository;
+    private final CategoryClosureService closureService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Logger logger = LoggerFactory.getLogger(CopyCategoryImportService.class);
+
+    public CopyCategoryImportService(CategoryImportRepository importRepository,
+                                     CategoryClosureService closureService,
+                                     ApplicationEventPublisher eventPublisher) {
+        this.importRepository = importRepository;
+        this.closureService = closureService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Сохраняет категории через временную таблицу в одной транзакции.
+     *
+     * @param categories категории из файла; идентификаторы и родители указаны в нумерации файла
+     */
+    @Override
+    @Transactional
+    public void importCategories(List<Category> categories) {
+        importRepository.createStagingTable();
+        long copied = importRepository.copyRows(categories);
+        int created = importRepository.resolveTargets(Category.ID_ALLOCATION_SIZE);
+        importRepository.insertCreated();
+        int moved = importRepository.updateParents();
+        closureService.onCategoriesImported();
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(importRepository.findImportedNames()));
+        logger.info("Загружено строк: {}, новых категорий: {}, изменено родителей: {}", copied, created, moved);
+    }
+}
@@ -3,6 +3,7 @@ package pro.sky.telegrambot.service;
 import pro.sky.telegrambot.model.Category;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -11,11 +12,11 @@ import java.util.List;
 public interface ExcelProcessingService {
 
     /**
-     * Генерирует Excel-файл с текущей структурой категорий.
+     * Записывает Excel-файл с текущей структурой категорий в поток.
      *
-     * @return массив байтов с содержимым Excel-файла
+     * @param outputStream поток, в который записывается файл
      */
-    byte[] generateCategoriesExcel() throws IOException;
+    void writeCategoriesExcel(OutputStream outputStream) throws IOException;
 
     /**
      * Парсит Excel-файл и преобразует его в список категорий.
@@ -1,23 +1,30 @@
 package pro.sky.telegrambot.service;
 
-import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
 import pro.sky.telegrambot.exception.InvalidExcelFormatException;
 import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryTreeRow;
 import pro.sky.telegrambot.repository.CategoryRepository;
+import pro.sky.telegrambot.service.ExcelSheetReader.SheetCell;
+import pro.sky.telegrambot.service.ExcelSheetReader.SheetRow;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 
 /**
@@ -26,6 +33,23 @@ import java.util.Map;
 @Service
 public class ExcelProcessingServiceImpl implements ExcelProcessingService {
 
+    /**
+     * Количество последних строк листа, которые хранятся в памяти при выгрузке.
+     */
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
+    private static final int COLUMN_COUNT = 3;
+
+    /**
+     * Запас ширины столбца в символах, как у автоматического подбора ширины в Excel.
+     */
+    private static final int COLUMN_PADDING = 2;
+
+    /**
+     * Максимальная ширина столбца в символах, допустимая в Excel.
+     */
+    private static final int MAX_COLUMN_CHARACTERS = 255;
+
     private final CategoryRepository categoryRepository;
 
     public ExcelProcessingServiceImpl(CategoryRepository categoryRepository) {
@@ -33,30 +57,34 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
     }
 
     /**
-     * Генерирует Excel-файл со всеми категориями из базы данных.
+     * Записывает Excel-файл со всеми категориями из базы данных.
+     * Книга формируется потоково: в памяти держится только окно из последних строк листа,
+     * остальные строки сжимаются во временный файл, а категории читаются курсором базы данных.
      *
-     * @return массив байтов с содержимым Excel-файла
+     * @param outputStream поток, в который записывается файл
      * @throws IOException                  если произошла ошибка ввода-вывода при создании файла
      * @throws CategoryTreeIsEmptyException если в базе данных нет категорий
      */
     @Transactional(readOnly = true)
     @Override
-    public byte[] generateCategoriesExcel() throws IOException {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            Sheet sheet = workbook.createSheet("Категории");
+    public void writeCategoriesExcel(OutputStream outputStream) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
+        try (workbook) {
+            SXSSFSheet sheet = workbook.createSheet("Категории");
+            int[] columnLengths = new int[COLUMN_COUNT];
 
             CellStyle headerStyle = createHeaderStyle(workbook);
 
-            createHeaders(sheet, headerStyle);
+            createHeaders(sheet, headerStyle, columnLengths);
 
-            processCategoryData(sheet);
+            processCategoryData(sheet, columnLengths);
 
-            autoSizeColumns(sheet);
+            autoSizeColumns(sheet, columnLengths);
 
             workbook.write(outputStream);
-            return outputStream.toByteArray();
+        } finally {
+            workbook.dispose();
         }
     }
 
@@ -77,10 +105,11 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
     /**
      * Создает строку заголовков в таблице.
      *
-     * @param sheet       лист Excel
-     * @param headerStyle стиль для заголовков
+     * @param sheet         лист Excel
+     * @param headerStyle   стиль для заголовков
+     * @param columnLengths максимальные длины значений столбцов
      */
-    private void createHeaders(Sheet sheet, CellStyle headerStyle) {
+    private void createHeaders(Sheet sheet, CellStyle headerStyle, int[] columnLengths) {
         Row headerRow = sheet.createRow(0);
         String[] headers = {"id_Категории", "Имя_Категории", "id_Родителя"};
 
@@ -88,48 +117,63 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             cell.setCellStyle(headerStyle);
+            columnLengths[i] = headers[i].length() + 1;
         }
     }
 
     /**
      * Заполняет лист данными категорий.
+     * Категории читаются курсором одного рекурсивного запроса вместе с идентификаторами родителей,
+     * поэтому ветви, отсоединенные для фонового удаления, в выгрузку не попадают.
      *
-     * @param sheet лист для заполнения
+     * @param sheet         лист для заполнения
+     * @param columnLengths максимальные длины значений столбцов, обновляются по мере записи строк
      * @throws CategoryTreeIsEmptyException если в базе нет категорий
      */
-    private void processCategoryData(Sheet sheet) {
-        List<Category> categories = categoryRepository.findAll();
-        if (categories.isEmpty()) {
-            throw new CategoryTreeIsEmptyException("Дерево категорий пусто.");
-        }
+    private void processCategoryData(Sheet sheet, int[] columnLengths) {
         int rowNum = 1;
+        try (Stream<CategoryTreeRow> categories = categoryRepository.streamTree()) {
+            Iterator<CategoryTreeRow> iterator = categories.iterator();
+            while (iterator.hasNext()) {
+                CategoryTreeRow category = iterator.next();
+                Row row = sheet.createRow(rowNum++);
 
-        for (Category category : categories) {
-            Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(category.getId());
+                row.createCell(1).setCellValue(category.getName());
 
-            row.createCell(0).setCellValue(category.getId());
-            row.createCell(1).setCellValue(category.getName());
+                Long parentId = category.getParentId();
+                String parent = parentId != null ? parentId.toString() : "";
+                row.createCell(2).setCellValue(parent);
 
-            Long parentId = category.getParent() != null ?
-                    category.getParent().getId() : null;
-            row.createCell(2).setCellValue(
-                    parentId != null ? parentId.toString() : "");
+                columnLengths[0] = Math.max(columnLengths[0], Long.toString(category.getId()).length());
+                columnLengths[1] = Math.max(columnLengths[1], category.getName().length());
+                columnLengths[2] = Math.max(columnLengths[2], parent.length());
+            }
+        }
+        if (rowNum == 1) {
+            throw new CategoryTreeIsEmptyException("Дерево категорий пусто.");
         }
     }
 
     /**
-     * Автоматически настраивает ширину столбцов.
+     * Настраивает ширину столбцов по максимальной длине значений.
+     * Длины собираются при записи строк, поэтому ширина устанавливается один раз
+     * без повторного обхода ячеек и измерения шрифтов, как в {@link Sheet#autoSizeColumn(int)}.
      *
-     * @param sheet лист для настройки
+     * @param sheet         лист для настройки
+     * @param columnLengths максимальные длины значений столбцов в символах
      */
-    private void autoSizeColumns(Sheet sheet) {
-        for (int i = 0; i < 3; i++) {
-            sheet.autoSizeColumn(i);
+    private void autoSizeColumns(Sheet sheet, int[] columnLengths) {
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            int characters = Math.min(columnLengths[i] + COLUMN_PADDING, MAX_COLUMN_CHARACTERS);
+            sheet.setColumnWidth(i, characters * 256);
         }
     }
 
     /**
      * Парсит Excel-файл и извлекает из него список категорий.
+     * Лист читается потоково SAX-парсером, без построения модели всей книги в памяти,
+     * и каждая строка сразу проверяется и преобразуется в категорию.
      *
      * @param fileContent содержимое Excel-файла в виде массива байтов
      * @return список распарсенных категорий с восстановленными связями
@@ -137,19 +181,20 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
      * @throws InvalidExcelFormatException если формат файла не соответствует ожидаемому
      */
     public List<Category> parseExcel(byte[] fileContent) throws IOException {
-        try (Workbook workbook = new XSSFWorkbook(new ByteArrayInputStream(fileContent))) {
-            Sheet sheet = workbook.getSheetAt(0);
+        Path file = Files.createTempFile("categories", ".xlsx");
+        try {
+            Files.write(file, fileContent);
             List<Category> categories = new ArrayList<>();
             Map<Long, Category> categoryMap = new HashMap<>();
 
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-
+            ExcelSheetReader.read(file.toFile(), 3, row -> {
+                if (row.getRowNum() == 0) {
+                    return;
+                }
                 Category category = parseCategoryRow(row);
                 categoryMap.put(category.getId(), category);
                 categories.add(category);
-            }
+            });
             // Установка родительских связей
             for (Category category : categories) {
                 if (category.getParent() != null) {
@@ -160,6 +205,8 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
                 }
             }
             return categories;
+        } finally {
+            Files.deleteIfExists(file);
         }
     }
 
@@ -170,26 +217,26 @@ public class ExcelProcessingServiceImpl implements ExcelProcessingService {
      * @return объект Category
      * @throws InvalidExcelFormatException если данные строки невалидны
      */
-    private Category parseCategoryRow(Row row) {
+    private Category parseCategoryRow(SheetRow row) {
         try {
             Category category = new Category();
 
             // Обработка ID категории (число)
-            Cell idCell = row.getCell(0);
+            SheetCell idCell = row.getCell(0);
             if (idCell == null || idCell.getCellType() != CellType.NUMERIC) {
                 throw new InvalidExcelFormatException("Неверный ID категории в строке " + (row.getRowNum() + 1));
             }
             category.setId((long) idCell.getNumericCellValue());
 
             // Обработка названия (строка)
-            Cell nameCell = row.getCell(1);
+            SheetCell nameCell = row.getCell(1);
             if (nameCell == null || nameCell.getCellType() != CellType.STRING || nameCell.getStringCellValue().isEmpty()) {
                 throw new InvalidExcelFormatException("Неверное название в строке " + (row.getRowNum() + 1));
             }
             category.setName(nameCell.getStringCellValue().trim());
 
             // Обработка родительского ID (число или строка)
-            Cell parentCell = row.getCell(2);
+            SheetCell parentCell = row.getCell(2);
             if (parentCell != null) {
                 switch (parentCell.getCellType()) {
                     case NUMERIC:  // Числовой формат
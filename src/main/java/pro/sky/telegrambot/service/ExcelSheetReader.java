@@ -0,0 +1,237 @@
+package pro.sky.telegrambot.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import pro.sky.telegrambot.exception.InvalidExcelFormatException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение первого листа XLSX-файла без построения модели всей книги.
+ * <p>
+ * XML листа разбирается SAX-парсером, и строки передаются обработчику по одной.
+ * Таблица общих строк загружается в версии только для чтения, а пакет открывается
+ * из файла с произвольным доступом, поэтому используемая память не зависит от количества строк.
+ */
+final class ExcelSheetReader {
+
+    private ExcelSheetReader() {
+    }
+
+    /**
+     * Читает строки первого листа.
+     *
+     * @param file        XLSX-файл
+     * @param columnCount количество первых столбцов, значения которых передаются обработчику
+     * @param consumer    обработчик строк листа, включая строку заголовков
+     * @throws IOException                 если произошла ошибка чтения файла
+     * @throws InvalidExcelFormatException если файл не является книгой Excel
+     */
+    static void read(File file, int columnCount, Consumer<SheetRow> consumer) throws IOException {
+        OPCPackage workbook;
+        try {
+            workbook = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException | RuntimeException e) {
+            throw new InvalidExcelFormatException("Не удалось открыть файл: " + e.getMessage());
+        }
+        try {
+            XSSFReader reader = new XSSFReader(workbook);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(workbook);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new InvalidExcelFormatException("В файле нет ни одного листа");
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new SheetHandler(sharedStrings, columnCount, consumer));
+                xmlReader.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new InvalidExcelFormatException("Не удалось прочитать лист: " + e.getMessage());
+        } finally {
+            workbook.revert();
+        }
+    }
+
+    /**
+     * Строка листа с номером, начиная с 0, и значениями первых столбцов.
+     */
+    static final class SheetRow {
+
+        private final int rowNum;
+        private final SheetCell[] cells;
+
+        SheetRow(int rowNum, SheetCell[] cells) {
+            this.rowNum = rowNum;
+            this.cells = cells;
+        }
+
+        /**
+         * @return номер строки, начиная с 0
+         */
+        int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * @param column номер столбца, начиная с 0
+         * @return ячейка или null, если её нет в файле
+         */
+        SheetCell getCell(int column) {
+            return column < cells.length ? cells[column] : null;
+        }
+    }
+
+    /**
+     * Значение ячейки листа с типом, определенным так же, как в модели книги POI.
+     */
+    static final class SheetCell {
+
+        private final CellType cellType;
+        private final String value;
+
+        SheetCell(CellType cellType, String value) {
+            this.cellType = cellType;
+            this.value = value;
+        }
+
+        CellType getCellType() {
+            return cellType;
+        }
+
+        double getNumericCellValue() {
+            return Double.parseDouble(value);
+        }
+
+        String getStringCellValue() {
+            return value;
+        }
+    }
+
+    /**
+     * SAX-обработчик XML листа. Накапливает значения ячеек текущей строки
+     * и передает строку обработчику при закрытии элемента {@code row}.
+     */
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final int columnCount;
+        private final Consumer<SheetRow> consumer;
+        private final StringBuilder text = new StringBuilder();
+        private SheetCell[] cells;
+        private int rowNum = -1;
+        private int column;
+        private String type;
+        private boolean formula;
+        private boolean inText;
+
+        private SheetHandler(ReadOnlySharedStringsTable sharedStrings, int columnCount,
+                             Consumer<SheetRow> consumer) {
+            this.sharedStrings = sharedStrings;
+            this.columnCount = columnCount;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowRef = attributes.getValue("r");
+                    rowNum = rowRef != null ? Integer.parseInt(rowRef) - 1 : rowNum + 1;
+                    cells = new SheetCell[columnCount];
+                    column = -1;
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    column = cellRef != null ? columnIndex(cellRef) : column + 1;
+                    type = attributes.getValue("t");
+                    formula = false;
+                    text.setLength(0);
+                    break;
+                case "f":
+                    formula = true;
+                    break;
+                case "v":
+                case "t":
+                    inText = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    inText = false;
+                    break;
+                case "c":
+                    if (column >= 0 && column < columnCount) {
+                        cells[column] = toCell();
+                    }
+                    break;
+                case "row":
+                    consumer.accept(new SheetRow(rowNum, cells));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                text.append(ch, start, length);
+            }
+        }
+
+        private SheetCell toCell() {
+            String value = text.toString();
+            if (formula) {
+                return new SheetCell(CellType.FORMULA, value);
+            }
+            if (type == null || type.equals("n")) {
+                return new SheetCell(value.isEmpty() ? CellType.BLANK : CellType.NUMERIC, value);
+            }
+            switch (type) {
+                case "s":
+                    return new SheetCell(CellType.STRING,
+                            sharedStrings.getItemAt(Integer.parseInt(value)).getString());
+                case "b":
+                    return new SheetCell(CellType.BOOLEAN, value);
+                case "e":
+                    return new SheetCell(CellType.ERROR, value);
+                default:
+                    return new SheetCell(CellType.STRING, value);
+            }
+        }
+
+        /**
+         * Вычисляет номер столбца по адресу ячейки, например {@code C12} - 2.
+         */
+        private static int columnIndex(String cellRef) {
+            int index = 0;
+            for (int i = 0; i < cellRef.length() && Character.isLetter(cellRef.charAt(i)); i++) {
+                index = index * 26 + (cellRef.charAt(i) - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pro.sky.telegrambot.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
+import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.repository.CategoryRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Сохранение загруженных категорий через JPA пакетными запросами.
+ * Используется по умолчанию ({@code category.import.engine=jpa}).
+ */
+@Service
+@ConditionalOnProperty(name = "category.import.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaCategoryImportService implements CategoryImportService {
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureService closureService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public JpaCategoryImportService(CategoryRepository categoryRepository,
+                                    CategoryClosureService closureService,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.categoryRepository = categoryRepository;
+        this.closureService = closureService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Сохраняет список категорий в базу данных с учетом родительских связей.
+     * Все изменения, включая таблицу замыкания, выполняются в одной транзакции.
+     *
+     * @param newCategories список новых категорий для сохранения
+     */
+    @Override
+    @Transactional
+    public void importCategories(List<Category> newCategories) {
+//    Сначала находим существующие категории по именам
+        List<String> categoryNames = newCategories.stream()
+                .map(Category::getName)
+                .collect(Collectors.toList());
+        Map<String, Category> existingCategories = categoryRepository.findByNameIn(categoryNames)
+                .stream()
+                .collect(Collectors.toMap(Category::getName, Function.identity()));
+//    Подготовка данных для сохранения
+        List<Category> categoriesToSave = new ArrayList<>();
+        Map<Long, Category> tempMap = new HashMap<>();
+        Map<String, Category> nameToCategoryMap = new HashMap<>();
+//    Обработка новых категорий с проверкой дубликатов
+        for (Category newCat : newCategories) {
+            //Проверяем, существует ли категория с таким именем
+            if (existingCategories.containsKey(newCat.getName())) {
+                // Если существует, используем существующую
+                Category existingCat = existingCategories.get(newCat.getName());
+                tempMap.put(newCat.getId(), existingCat);
+                nameToCategoryMap.put(existingCat.getName(), existingCat);
+                continue;
+            }
+            // Если не существует, создаем новую
+            Category categoryToSave = new Category();
+            categoryToSave.setName(newCat.getName());
+            categoryToSave.setParent(null); // Временно null
+            categoriesToSave.add(categoryToSave);
+            tempMap.put(newCat.getId(), categoryToSave);
+            nameToCategoryMap.put(newCat.getName(), categoryToSave);
+        }
+//    Сохраняем новые категории (без дубликатов)
+        if (!categoriesToSave.isEmpty()) {
+            categoryRepository.saveAll(categoriesToSave);
+        }
+//    Устанавливаем родительские связи
+        for (Category newCat : newCategories) {
+            Category savedCat = tempMap.get(newCat.getId());
+
+            if (newCat.getParent() != null) {
+                Category parent = tempMap.get(newCat.getParent().getId());
+                if (parent != null) {
+                    savedCat.setParent(parent);
+                }
+            }
+        }
+//    Сохраняем обновленные категории
+        categoryRepository.saveAll(nameToCategoryMap.values());
+//    Перестраиваем таблицу замыкания один раз для всей загрузки
+        closureService.onCategoriesImported();
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(nameToCategoryMap.keySet()));
+    }
+}
@@ -0,0 +1,28 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.request.BaseRequest;
+import com.pengrad.telegrambot.response.BaseResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Сервис асинхронной отправки запросов к Telegram API с соблюдением ограничений частоты.
+ */
+public interface TelegramSender {
+
+    /**
+     * Ставит запрос в очередь отправки и сразу возвращает управление.
+     * Запросы одного чата отправляются в порядке постановки в очередь.
+     *
+     * @param request запрос к Telegram API
+     * @param <T>     тип запроса
+     * @param <R>     тип ответа
+     * @return ответ Telegram API, который будет получен после отправки
+     */
+    <T extends BaseRequest<T, R>, R extends BaseResponse> CompletableFuture<R> send(T request);
+
+    /**
+     * @return количество запросов, ожидающих отправки
+     */
+    int queueDepth();
+}
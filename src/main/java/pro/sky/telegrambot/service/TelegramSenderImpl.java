@@ -0,0 +1,456 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.Callback;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.request.BaseRequest;
+import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.BaseResponse;
+import com.pengrad.telegrambot.response.SendResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pro.sky.telegrambot.util.TokenBucket;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Реализация сервиса асинхронной отправки запросов к Telegram API.
+ * <p>
+ * Запросы складываются в очереди по чатам и отправляются одним фоновым потоком через асинхронный
+ * {@link TelegramBot#execute(BaseRequest, Callback)}, поэтому потоки обработки команд не ждут ответа Telegram.
+ * Частота отправки ограничена маркерными корзинами: общей ({@code telegram.sender.global-rate} запросов
+ * в секунду) и отдельной для каждого чата ({@code telegram.sender.chat-rate} запросов в секунду
+ * с всплеском до {@code telegram.sender.chat-burst}). Запросы одного чата отправляются по одному,
+ * следующий - только после ответа на предыдущий, что сохраняет порядок сообщений. Запросы без чата
+ * (например, ответы на нажатия кнопок) ограничены только общей корзиной.
+ * <p>
+ * При ответе 429 запрос возвращается в начало очереди своего чата и повторяется через {@code retry_after}
+ * секунд, указанных Telegram, а при его отсутствии и при сетевых ошибках - с экспоненциальной задержкой.
+ * <p>
+ * Идущие подряд простые текстовые сообщения одного чата, накопившиеся в очереди за неподтвержденным
+ * или ограниченным корзиной запросом, объединяются в одно сообщение длиной не более {@value #MAX_MESSAGE_LENGTH}
+ * символов. По умолчанию сообщение в свободный чат отправляется сразу; если задан
+ * {@code telegram.sender.coalesce-window-ms}, оно задерживается на это время, чтобы успела накопиться серия ответов.
+ */
+@Service
+public class TelegramSenderImpl implements TelegramSender {
+
+    static final int MAX_ATTEMPTS = 5;
+    static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final String MESSAGE_SEPARATOR = "\n\n";
+    private static final Set<String> PLAIN_MESSAGE_PARAMETERS = Set.of("chat_id", "text");
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final long INITIAL_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long IDLE_SWEEP_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final TelegramBot telegramBot;
+    private final double chatRate;
+    private final double chatBurst;
+    private final long coalesceWindowNanos;
+    private final TokenBucket globalBucket;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Object, ChatQueue> chats = new HashMap<>();
+    private final ChatQueue unboundQueue = new ChatQueue(null, null);
+    private final Deque<ChatQueue> ready = new ArrayDeque<>();
+    private final PriorityQueue<ChatQueue> delayed = new PriorityQueue<>(Comparator.comparingLong(chat -> chat.notBefore));
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "telegram-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Logger logger = LoggerFactory.getLogger(TelegramSenderImpl.class);
+    private long lastSweep = System.nanoTime();
+
+    public TelegramSenderImpl(TelegramBot telegramBot,
+                              @Value("${telegram.sender.global-rate:30}") double globalRate,
+                              @Value("${telegram.sender.chat-rate:1}") double chatRate,
+                              @Value("${telegram.sender.chat-burst:3}") double chatBurst,
+                              @Value("${telegram.sender.coalesce-window-ms:0}") long coalesceWindowMs) {
+        this.telegramBot = telegramBot;
+        this.chatRate = chatRate;
+        this.chatBurst = chatBurst;
+        this.coalesceWindowNanos = TimeUnit.MILLISECONDS.toNanos(coalesceWindowMs);
+        this.globalBucket = new TokenBucket(globalRate, globalRate, System.nanoTime());
+    }
+
+    /**
+     * Запускает фоновый поток отправки после создания сервиса.
+     */
+    @PostConstruct
+    public void start() {
+        executor.execute(this::dispatchLoop);
+    }
+
+    /**
+     * Ставит запрос в очередь чата, указанного в параметре {@code chat_id} запроса.
+     *
+     * @param request запрос к Telegram API
+     * @param <T>     тип запроса
+     * @param <R>     тип ответа
+     * @return ответ Telegram API, который будет получен после отправки
+     */
+    @Override
+    public <T extends BaseRequest<T, R>, R extends BaseResponse> CompletableFuture<R> send(T request) {
+        Pending<R> pending = new Pending<>(request);
+        Object chatId = request.getParameters().get("chat_id");
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            ChatQueue chat = chatId == null ? unboundQueue : chats.computeIfAbsent(chatId,
+                    key -> new ChatQueue(key, new TokenBucket(chatRate, chatBurst, now)));
+            if (coalesceWindowNanos > 0 && chat.bucket != null && chat.pending.isEmpty() && chat.inFlight == 0
+                    && pending.isPlainMessage()) {
+                chat.notBefore = Math.max(chat.notBefore, now + coalesceWindowNanos);
+            }
+            chat.pending.addLast(pending);
+            queueDepth.incrementAndGet();
+            schedule(chat, now);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return pending.result;
+    }
+
+    /**
+     * @return количество запросов, ожидающих отправки, без учета уже отправленных и ожидающих ответа
+     */
+    @Override
+    public int queueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Цикл фонового потока: выбирает следующий разрешенный ограничениями запрос и отправляет его.
+     * Непредвиденная ошибка записывается в лог и не останавливает отправку остальных запросов.
+     */
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Dispatch next;
+                lock.lock();
+                try {
+                    next = nextDispatch();
+                } finally {
+                    lock.unlock();
+                }
+                if (next != null) {
+                    execute(next.chat(), next.pending());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Ошибка в цикле отправки запросов Telegram", e);
+            }
+        }
+    }
+
+    /**
+     * Выбирает следующий запрос к отправке или ожидает, пока он появится.
+     * Вызывается под блокировкой.
+     *
+     * @return запрос к отправке или null, если нужно повторить выбор после ожидания
+     * @throws InterruptedException если поток остановлен
+     */
+    private Dispatch nextDispatch() throws InterruptedException {
+        long now = System.nanoTime();
+        while (!delayed.isEmpty() && delayed.peek().notBefore <= now) {
+            ChatQueue chat = delayed.poll();
+            chat.scheduled = false;
+            schedule(chat, now);
+        }
+        sweepIdleChats(now);
+        if (ready.isEmpty()) {
+            if (delayed.isEmpty()) {
+                changed.await();
+            } else {
+                changed.awaitNanos(delayed.peek().notBefore - now);
+            }
+            return null;
+        }
+        long globalWait = globalBucket.nanosUntilAvailable(now);
+        if (globalWait > 0) {
+            changed.awaitNanos(globalWait);
+            return null;
+        }
+        ChatQueue chat = ready.pollFirst();
+        chat.scheduled = false;
+        if (chat.bucket != null && !chat.bucket.tryAcquire(now)) {
+            chat.notBefore = now + chat.bucket.nanosUntilAvailable(now);
+            schedule(chat, now);
+            return null;
+        }
+        globalBucket.tryAcquire(now);
+        Pending<?> head = chat.pending.pollFirst();
+        queueDepth.decrementAndGet();
+        Pending<?> pending;
+        try {
+            pending = coalesce(chat, head);
+        } catch (RuntimeException e) {
+            // запрос не удалось подготовить: завершаем его с ошибкой, чтобы не блокировать очередь чата
+            schedule(chat, now);
+            head.complete(null, e);
+            throw e;
+        }
+        chat.inFlight++;
+        schedule(chat, now);
+        return new Dispatch(chat, pending);
+    }
+
+    /**
+     * Объединяет простое текстовое сообщение со следующими за ним простыми сообщениями того же чата,
+     * пока длина объединенного текста не превышает лимит Telegram. Вызывается под блокировкой.
+     *
+     * @param chat очередь чата
+     * @param head первый запрос очереди
+     * @return исходный или объединенный запрос
+     */
+    private Pending<?> coalesce(ChatQueue chat, Pending<?> head) {
+        if (!head.isPlainMessage() || chat.pending.isEmpty() || !chat.pending.peekFirst().isPlainMessage()) {
+            return head;
+        }
+        StringBuilder text = new StringBuilder(head.text());
+        List<Pending<?>> merged = new ArrayList<>();
+        merged.add(head);
+        while (!chat.pending.isEmpty() && chat.pending.peekFirst().isPlainMessage()
+                && text.length() + MESSAGE_SEPARATOR.length() + chat.pending.peekFirst().text().length()
+                <= MAX_MESSAGE_LENGTH) {
+            Pending<?> next = chat.pending.pollFirst();
+            queueDepth.decrementAndGet();
+            text.append(MESSAGE_SEPARATOR).append(next.text());
+            merged.add(next);
+        }
+        if (merged.size() == 1) {
+            return head;
+        }
+        Pending<SendResponse> combined = new Pending<>(new SendMessage(chat.key, text.toString()));
+        combined.result.whenComplete((response, error) ->
+                merged.forEach(pending -> pending.complete(response, error)));
+        return combined;
+    }
+
+    /**
+     * Отправляет запрос через асинхронный вызов Telegram API.
+     *
+     * @param chat    очередь чата запроса
+     * @param pending запрос
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void execute(ChatQueue chat, Pending<?> pending) {
+        try {
+            telegramBot.execute((BaseRequest) pending.request, new Callback() {
+                @Override
+                public void onResponse(BaseRequest request, BaseResponse response) {
+                    handleResponse(chat, pending, response);
+                }
+
+                @Override
+                public void onFailure(BaseRequest request, IOException e) {
+                    handleFailure(chat, pending, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            handleFailure(chat, pending, e);
+        }
+    }
+
+    /**
+     * Обрабатывает ответ Telegram. Ответ 429 приводит к повторной отправке после указанной паузы.
+     *
+     * @param chat     очередь чата запроса
+     * @param pending  запрос
+     * @param response ответ Telegram API
+     */
+    private void handleResponse(ChatQueue chat, Pending<?> pending, BaseResponse response) {
+        if (response != null && response.errorCode() == TOO_MANY_REQUESTS && pending.attempts < MAX_ATTEMPTS) {
+            Integer retryAfter = response.parameters() != null ? response.parameters().retryAfter() : null;
+            long delay = retryAfter != null ? TimeUnit.SECONDS.toNanos(retryAfter) : backoff(pending);
+            logger.warn("Превышен лимит запросов Telegram для чата {}, повтор через {} мс",
+                    chat.key, TimeUnit.NANOSECONDS.toMillis(delay));
+            retry(chat, pending, delay);
+            return;
+        }
+        finish(chat);
+        pending.complete(response, null);
+    }
+
+    /**
+     * Обрабатывает сетевую ошибку отправки: повторяет запрос с экспоненциальной задержкой,
+     * а после исчерпания попыток завершает запрос с ошибкой.
+     *
+     * @param chat    очередь чата запроса
+     * @param pending запрос
+     * @param error   ошибка отправки
+     */
+    private void handleFailure(ChatQueue chat, Pending<?> pending, Exception error) {
+        if (pending.attempts < MAX_ATTEMPTS) {
+            retry(chat, pending, backoff(pending));
+            return;
+        }
+        logger.error("Не удалось отправить запрос в чат {}", chat.key, error);
+        finish(chat);
+        pending.complete(null, error);
+    }
+
+    private long backoff(Pending<?> pending) {
+        return INITIAL_BACKOFF_NANOS << pending.attempts;
+    }
+
+    /**
+     * Возвращает запрос в начало очереди чата и приостанавливает отправку в чат на указанное время.
+     */
+    private void retry(ChatQueue chat, Pending<?> pending, long delayNanos) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            pending.attempts++;
+            chat.pending.addFirst(pending);
+            queueDepth.incrementAndGet();
+            chat.inFlight--;
+            // очередь без корзины может уже ждать в delayed, а ключ PriorityQueue нельзя менять на месте
+            if (chat.scheduled && (ready.remove(chat) || delayed.remove(chat))) {
+                chat.scheduled = false;
+            }
+            chat.notBefore = Math.max(chat.notBefore, now + delayNanos);
+            schedule(chat, now);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Отмечает завершение отправки запроса и разрешает отправку следующего запроса чата.
+     */
+    private void finish(ChatQueue chat) {
+        lock.lock();
+        try {
+            chat.inFlight--;
+            schedule(chat, System.nanoTime());
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ставит чат в очередь готовых или отложенных чатов, если у него есть запросы
+     * и нет неподтвержденного запроса. Вызывается под блокировкой.
+     */
+    private void schedule(ChatQueue chat, long now) {
+        if (chat.scheduled || chat.pending.isEmpty() || (chat.bucket != null && chat.inFlight > 0)) {
+            return;
+        }
+        chat.scheduled = true;
+        if (chat.notBefore > now) {
+            delayed.add(chat);
+        } else {
+            ready.addLast(chat);
+        }
+    }
+
+    /**
+     * Раз в минуту удаляет очереди чатов без запросов, корзины которых полностью пополнились.
+     * Вызывается под блокировкой.
+     */
+    private void sweepIdleChats(long now) {
+        if (now - lastSweep < IDLE_SWEEP_NANOS) {
+            return;
+        }
+        lastSweep = now;
+        Iterator<ChatQueue> iterator = chats.values().iterator();
+        while (iterator.hasNext()) {
+            ChatQueue chat = iterator.next();
+            if (!chat.scheduled && chat.inFlight == 0 && chat.pending.isEmpty()
+                    && chat.notBefore <= now && chat.bucket.isFull(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Останавливает фоновый поток при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Очередь запросов одного чата.
+     */
+    private static final class ChatQueue {
+
+        private final Object key;
+        private final TokenBucket bucket;
+        private final Deque<Pending<?>> pending = new ArrayDeque<>();
+        private int inFlight;
+        private boolean scheduled;
+        private long notBefore = Long.MIN_VALUE;
+
+        private ChatQueue(Object key, TokenBucket bucket) {
+            this.key = key;
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * Запрос, ожидающий отправки, вместе с результатом и числом выполненных попыток.
+     */
+    private static final class Pending<R extends BaseResponse> {
+
+        private final BaseRequest<?, R> request;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private int attempts;
+
+        private Pending(BaseRequest<?, R> request) {
+            this.request = request;
+        }
+
+        /**
+         * @return true, если запрос - текстовое сообщение без разметки и клавиатуры, которое можно объединить
+         */
+        private boolean isPlainMessage() {
+            return request instanceof SendMessage
+                    && PLAIN_MESSAGE_PARAMETERS.containsAll(request.getParameters().keySet());
+        }
+
+        private String text() {
+            return (String) request.getParameters().get("text");
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(BaseResponse response, Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete((R) response);
+            }
+        }
+    }
+
+    private record Dispatch(ChatQueue chat, Pending<?> pending) {
+    }
+}
@@ -0,0 +1,18 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.Update;
+
+/**
+ * Сервис параллельной обработки входящих обновлений Telegram.
+ */
+public interface UpdateDispatcher {
+
+    /**
+     * Передает обновление на обработку.
+     * Обновления одного чата обрабатываются строго в порядке поступления,
+     * а обновления разных чатов - параллельно.
+     *
+     * @param update входящее обновление от Telegram API
+     */
+    void dispatch(Update update);
+}
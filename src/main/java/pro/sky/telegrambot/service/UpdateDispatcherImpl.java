@@ -0,0 +1,132 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.CallbackQuery;
+import com.pengrad.telegrambot.model.Update;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация сервиса параллельной обработки входящих обновлений.
+ * <p>
+ * Обновления распределяются по идентификатору чата между {@code telegram.dispatcher.parallelism}
+ * однопоточными обработчиками (по умолчанию - по числу ядер). Все обновления одного чата попадают
+ * к одному обработчику и обрабатываются по порядку, а медленная команда задерживает только чаты
+ * своего обработчика. Очередь каждого обработчика ограничена {@code telegram.dispatcher.queue-capacity}
+ * обновлениями: при переполнении поток получения обновлений ожидает освобождения места.
+ * Используется по умолчанию ({@code telegram.dispatcher.mode=sharded}).
+ */
+@Service
+@ConditionalOnProperty(name = "telegram.dispatcher.mode", havingValue = "sharded", matchIfMissing = true)
+public class UpdateDispatcherImpl implements UpdateDispatcher {
+
+    private final CommandService commandService;
+    private final ThreadPoolExecutor[] shards;
+    private final Logger logger = LoggerFactory.getLogger(UpdateDispatcherImpl.class);
+
+    public UpdateDispatcherImpl(CommandService commandService,
+                                @Value("${telegram.dispatcher.parallelism:0}") int parallelism,
+                                @Value("${telegram.dispatcher.queue-capacity:1000}") int queueCapacity) {
+        this.commandService = commandService;
+        int shardCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.shards = new ThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = "update-dispatcher-" + i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }, UpdateDispatcherImpl::awaitQueueSpace);
+        }
+    }
+
+    /**
+     * Ставит обновление в очередь обработчика, за которым закреплен чат обновления.
+     *
+     * @param update входящее обновление от Telegram API
+     */
+    @Override
+    public void dispatch(Update update) {
+        shards[Math.floorMod(Long.hashCode(chatKey(update)), shards.length)].execute(() -> process(update));
+    }
+
+    /**
+     * Обрабатывает обновление в потоке обработчика.
+     * Ошибка обработки записывается в лог и не влияет на следующие обновления.
+     *
+     * @param update входящее обновление от Telegram API
+     */
+    private void process(Update update) {
+        try {
+            commandService.processCommand(update);
+        } catch (Exception e) {
+            logger.error("Ошибка обработки обновления: {}", update, e);
+        }
+    }
+
+    /**
+     * Определяет ключ, по которому обновление закрепляется за обработчиком.
+     * Для сообщений и нажатий на кнопки это идентификатор чата, для прочих обновлений -
+     * идентификатор пользователя или самого обновления.
+     *
+     * @param update входящее обновление от Telegram API
+     * @return ключ распределения обновления
+     */
+    static long chatKey(Update update) {
+        if (update.message() != null) {
+            return update.message().chat().id();
+        }
+        CallbackQuery callbackQuery = update.callbackQuery();
+        if (callbackQuery != null) {
+            if (callbackQuery.message() != null) {
+                return callbackQuery.message().chat().id();
+            }
+            if (callbackQuery.from() != null) {
+                return callbackQuery.from().id();
+            }
+        }
+        return update.updateId() != null ? update.updateId() : 0;
+    }
+
+    /**
+     * Ожидает освобождения места в очереди переполненного обработчика.
+     *
+     * @param task     обработка обновления
+     * @param executor обработчик, очередь которого переполнена
+     */
+    private static void awaitQueueSpace(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Обработчик обновлений остановлен");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Ожидание места в очереди обновлений прервано", e);
+        }
+    }
+
+    /**
+     * Завершает обработку принятых обновлений при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        for (ThreadPoolExecutor shard : shards) {
+            if (!shard.awaitTermination(5, TimeUnit.SECONDS)) {
+                shard.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.Update;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка каждого обновления в отдельном виртуальном потоке
+ * ({@code telegram.dispatcher.mode=virtual}).
+ * <p>
+ * Команды большую часть времени ожидают ответов базы данных и Telegram API, поэтому поток на обновление
+ * не ограничивает число одновременно обрабатываемых чатов размером пула. Обновления одного чата
+ * выстраиваются в цепочку и обрабатываются по порядку. Число принятых, но не обработанных обновлений
+ * ограничено {@code telegram.dispatcher.queue-capacity}.
+ * <p>
+ * Виртуальные потоки появились в Java 21, а приложение собирается для Java 16 и запускается на Java 17,
+ * поэтому они ищутся через рефлексию. На Java до 21 режим не использует виртуальные потоки: обновления
+ * обрабатываются пулом из {@code telegram.dispatcher.fallback-threads} обычных потоков, и выигрыш
+ * от режима сводится к пулу большего размера, чем у режима {@code sharded}. Используемый исполнитель
+ * записывается в лог при запуске.
+ */
+@Service
+@ConditionalOnProperty(name = "telegram.dispatcher.mode", havingValue = "virtual")
+public class VirtualThreadUpdateDispatcher implements UpdateDispatcher {
+
+    private final CommandService commandService;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore capacity;
+    private final ConcurrentMap<Long, CompletableFuture<Void>> chatTails = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(VirtualThreadUpdateDispatcher.class);
+
+    public VirtualThreadUpdateDispatcher(CommandService commandService,
+                                         @Value("${telegram.dispatcher.queue-capacity:1000}") int queueCapacity,
+                                         @Value("${telegram.dispatcher.fallback-threads:64}") int fallbackThreads) {
+        this.commandService = commandService;
+        this.capacity = new Semaphore(queueCapacity);
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+            logger.info("Обновления обрабатываются в виртуальных потоках");
+        } else {
+            this.executor = Executors.newFixedThreadPool(fallbackThreads, runnable -> {
+                Thread thread = new Thread(runnable, "update-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.warn("Виртуальные потоки недоступны в Java {}, обновления обрабатываются пулом из {} обычных потоков",
+                    Runtime.version().feature(), fallbackThreads);
+        }
+    }
+
+    /**
+     * @return true, если обновления обрабатываются в виртуальных потоках, а не в пуле обычных потоков
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Запускает обработку обновления после завершения предыдущего обновления того же чата.
+     * Если достигнут предел необработанных обновлений, ожидает освобождения места.
+     *
+     * @param update входящее обновление от Telegram API
+     */
+    @Override
+    public void dispatch(Update update) {
+        capacity.acquireUninterruptibly();
+        long chatKey = UpdateDispatcherImpl.chatKey(update);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = chatTails.put(chatKey, done);
+        done.whenComplete((result, error) -> chatTails.remove(chatKey, done));
+        if (previous == null) {
+            submit(update, done);
+        } else {
+            previous.whenComplete((result, error) -> submit(update, done));
+        }
+    }
+
+    /**
+     * Передает обновление исполнителю. Звено цепочки чата завершается всегда, даже если обработка
+     * завершилась ошибкой или исполнитель уже остановлен, поэтому следующие обновления чата не теряются.
+     *
+     * @param update входящее обновление от Telegram API
+     * @param done   звено цепочки чата, завершаемое после обработки обновления
+     */
+    private void submit(Update update, CompletableFuture<Void> done) {
+        try {
+            executor.execute(() -> {
+                try {
+                    process(update);
+                } finally {
+                    done.complete(null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Обновление {} не обработано: обработка обновлений остановлена", update.updateId());
+            capacity.release();
+            done.complete(null);
+        }
+    }
+
+    /**
+     * Обрабатывает обновление и освобождает место для следующего.
+     * Ошибка обработки записывается в лог и не прерывает цепочку обновлений чата.
+     *
+     * @param update входящее обновление от Telegram API
+     */
+    private void process(Update update) {
+        try {
+            commandService.processCommand(update);
+        } catch (Exception e) {
+            logger.error("Ошибка обработки обновления: {}", update, e);
+        } finally {
+            capacity.release();
+        }
+    }
+
+    /**
+     * Создает исполнитель, запускающий каждую задачу в новом виртуальном потоке.
+     *
+     * @return исполнитель с виртуальным потоком на задачу или null, если виртуальные потоки недоступны
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Завершает обработку принятых обновлений при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
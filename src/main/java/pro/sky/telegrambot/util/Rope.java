@@ -0,0 +1,131 @@
+package pro.sky.telegrambot.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Неизменяемая строка-веревка (rope).
+ * Конкатенация не копирует символы, а создает узел, ссылающийся на обе части,
+ * поэтому уже построенные фрагменты текста можно переиспользовать без копирования.
+ */
+public abstract class Rope {
+
+    private static final Rope EMPTY = new Leaf("");
+
+    private Rope() {
+    }
+
+    /**
+     * @return пустая строка
+     */
+    public static Rope empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param text текст
+     * @return строка-веревка из одного фрагмента
+     */
+    public static Rope of(String text) {
+        return text.isEmpty() ? EMPTY : new Leaf(text);
+    }
+
+    /**
+     * Сбалансированно объединяет список фрагментов, чтобы глубина результата росла логарифмически.
+     *
+     * @param parts фрагменты в порядке следования
+     * @return объединенная строка-веревка
+     */
+    public static Rope concat(List<Rope> parts) {
+        return concat(parts, 0, parts.size());
+    }
+
+    private static Rope concat(List<Rope> parts, int from, int to) {
+        if (to - from == 0) {
+            return EMPTY;
+        }
+        if (to - from == 1) {
+            return parts.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return concat(parts, from, middle).concat(concat(parts, middle, to));
+    }
+
+    /**
+     * @param other фрагмент, добавляемый в конец
+     * @return объединенная строка-веревка
+     */
+    public Rope concat(Rope other) {
+        if (other.length() == 0) {
+            return this;
+        }
+        if (length() == 0) {
+            return other;
+        }
+        return new Concat(this, other);
+    }
+
+    /**
+     * @return количество символов
+     */
+    public abstract int length();
+
+    /**
+     * Добавляет все символы в StringBuilder обходом без рекурсии.
+     *
+     * @param sb StringBuilder для накопления результата
+     */
+    public void appendTo(StringBuilder sb) {
+        Deque<Rope> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Rope rope = stack.pop();
+            if (rope instanceof Concat concat) {
+                stack.push(concat.right);
+                stack.push(concat.left);
+            } else {
+                sb.append(((Leaf) rope).text);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length());
+        appendTo(sb);
+        return sb.toString();
+    }
+
+    private static final class Leaf extends Rope {
+
+        private final String text;
+
+        private Leaf(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+    }
+
+    private static final class Concat extends Rope {
+
+        private final Rope left;
+        private final Rope right;
+        private final int length;
+
+        private Concat(Rope left, Rope right) {
+            this.left = left;
+            this.right = right;
+            this.length = left.length() + right.length();
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+    }
+}
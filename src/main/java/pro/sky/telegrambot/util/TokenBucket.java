@@ -0,0 +1,68 @@
+package pro.sky.telegrambot.util;
+
+/**
+ * Ограничитель частоты по алгоритму маркерной корзины (token bucket).
+ * Корзина пополняется с постоянной скоростью до заданной емкости, каждое действие забирает один маркер.
+ * Время передается явно в наносекундах, класс не потокобезопасен.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long updatedAt;
+
+    /**
+     * @param ratePerSecond скорость пополнения, маркеров в секунду
+     * @param capacity      емкость корзины, допустимый всплеск действий
+     * @param now           текущее время в наносекундах
+     */
+    public TokenBucket(double ratePerSecond, double capacity, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    /**
+     * Вычисляет время ожидания следующего маркера.
+     *
+     * @param now текущее время в наносекундах
+     * @return время ожидания в наносекундах или 0, если маркер доступен сейчас
+     */
+    public long nanosUntilAvailable(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Забирает маркер, если он доступен.
+     *
+     * @param now текущее время в наносекундах
+     * @return true, если маркер получен
+     */
+    public boolean tryAcquire(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @param now текущее время в наносекундах
+     * @return true, если корзина полностью пополнена
+     */
+    public boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+        }
+    }
+}
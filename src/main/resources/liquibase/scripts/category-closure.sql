@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset category-tree:category-closure-table
+CREATE TABLE category_closure (
+    ancestor   BIGINT  NOT NULL REFERENCES category_tree (id) ON DELETE CASCADE,
+    descendant BIGINT  NOT NULL REFERENCES category_tree (id) ON DELETE CASCADE,
+    depth      INTEGER NOT NULL,
+    PRIMARY KEY (ancestor, depth, descendant)
+);
+
+CREATE UNIQUE INDEX category_closure_descendant_idx ON category_closure (descendant, ancestor);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset category-tree:category-detached-column
+ALTER TABLE category_tree
+    ADD COLUMN detached BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE INDEX category_tree_detached_idx ON category_tree (id) WHERE detached;
+
+--changeset category-tree:category-name-index
+CREATE INDEX category_tree_name_idx ON category_tree (name);
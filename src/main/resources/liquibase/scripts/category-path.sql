@@ -0,0 +1,54 @@
+--liquibase formatted sql
+
+--changeset category-tree:category-path-column
+ALTER TABLE category_tree
+    ADD COLUMN path TEXT COLLATE "C";
+
+WITH RECURSIVE tree AS (
+    SELECT c.id, '/' || c.id || '/' AS path
+    FROM category_tree c
+    WHERE c.id_parent IS NULL
+    UNION ALL
+    SELECT c.id, t.path || c.id || '/'
+    FROM category_tree c
+    JOIN tree t ON c.id_parent = t.id
+)
+UPDATE category_tree c
+SET path = tree.path
+FROM tree
+WHERE c.id = tree.id;
+
+CREATE INDEX category_tree_path_idx ON category_tree (path);
+
+--changeset category-tree:category-path-triggers splitStatements:false
+CREATE OR REPLACE FUNCTION category_tree_set_path() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'UPDATE' AND NEW.detached THEN
+        -- отсоединенная ветвь сохраняет прежние пути до фонового удаления
+        NEW.path := OLD.path;
+        RETURN NEW;
+    END IF;
+    NEW.path := COALESCE((SELECT p.path FROM category_tree p WHERE p.id = NEW.id_parent), '/')
+                    || NEW.id || '/';
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION category_tree_move_subtree() RETURNS trigger AS $$
+BEGIN
+    IF NEW.path IS DISTINCT FROM OLD.path THEN
+        UPDATE category_tree
+        SET path = NEW.path || substr(path, length(OLD.path) + 1)
+        WHERE path > OLD.path AND path < OLD.path || '~';
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER category_tree_set_path_trg
+    BEFORE INSERT OR UPDATE OF id_parent ON category_tree
+    FOR EACH ROW EXECUTE FUNCTION category_tree_set_path();
+
+CREATE TRIGGER category_tree_move_subtree_trg
+    AFTER UPDATE OF id_parent ON category_tree
+    FOR EACH ROW EXECUTE FUNCTION category_tree_move_subtree();
@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+--changeset category-tree:category-sequence-increment
+ALTER SEQUENCE category_tree_id_seq INCREMENT BY 500;
@@ -0,0 +1,137 @@
+package pro.sky.telegrambot.command;
+
+import com.pengrad.telegrambot.model.request.InlineKeyboardButton;
+import com.pengrad.telegrambot.model.request.InlineKeyboardMarkup;
+import com.pengrad.telegrambot.request.EditMessageText;
+import com.pengrad.telegrambot.request.SendMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreeLevel;
+import pro.sky.telegrambot.service.CategoryService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты для команды интерактивного просмотра дерева {@link BrowseCommand}.
+ * <p>
+ * Проверяет следующие аспекты работы команды:
+ * <ul>
+ *   <li>Корректность возвращаемого имени команды и префикса кнопок</li>
+ *   <li>Отправку корневых категорий с клавиатурой</li>
+ *   <li>Раскрытие категории по нажатию на кнопку</li>
+ *   <li>Обработку удаленной категории</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class BrowseCommandTest {
+
+    /**
+     * Тестовый идентификатор чата.
+     */
+    private final Long CHAT_ID = 123L;
+
+    /**
+     * Тестовый идентификатор сообщения с клавиатурой.
+     */
+    private final Integer MESSAGE_ID = 10;
+
+    @Mock
+    CategoryService categoryServiceMock;
+
+    @InjectMocks
+    BrowseCommand browseCommandTest;
+
+    /**
+     * Проверяет корректность возвращаемого имени команды и префикса кнопок.
+     */
+    @Test
+    public void getNameCommandTest() {
+        assertEquals(NamesCommand.BROWSE, browseCommandTest.getNameCommand());
+        assertEquals("browse", browseCommandTest.getCallbackPrefix());
+    }
+
+    /**
+     * Тестирует обработку команды с лишними аргументами.
+     * <p>
+     * Ожидаемый результат: сообщение об ошибке формата без обращения к сервису.
+     */
+    @Test
+    public void executeMoreThanOneArgument() {
+        SendMessage sendMessage = browseCommandTest.execute(CHAT_ID, List.of("/browse", "a"));
+        assertEquals("Неверный формат команды! Используйте: /browse", sendMessage.getParameters().get("text"));
+        verifyNoInteractions(categoryServiceMock);
+    }
+
+    /**
+     * Тестирует отправку корневых категорий.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Текст сообщения с количеством корневых категорий</li>
+     *   <li>Кнопку для каждой категории с её идентификатором в данных</li>
+     * </ul>
+     */
+    @Test
+    public void executeShowsRootCategories() {
+        when(categoryServiceMock.viewLevel(null, 0, BrowseCommand.PAGE_SIZE)).thenReturn(new CategoryTreeLevel(
+                null, null, null, List.of(new CategoryTreeLevel.Child(1L, "Электроника", true)), 0, 1));
+
+        SendMessage sendMessage = browseCommandTest.execute(CHAT_ID, List.of("/browse"));
+
+        assertEquals("Корневые категории: 1", sendMessage.getParameters().get("text"));
+        InlineKeyboardButton[][] keyboard =
+                ((InlineKeyboardMarkup) sendMessage.getParameters().get("reply_markup")).inlineKeyboard();
+        assertEquals(1, keyboard.length);
+        assertEquals("📁 Электроника", keyboard[0][0].text());
+        assertEquals("browse:1:0", keyboard[0][0].callbackData());
+    }
+
+    /**
+     * Тестирует раскрытие категории с большим количеством дочерних категорий.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Редактирование исходного сообщения</li>
+     *   <li>Кнопку перехода к следующей порции дочерних категорий</li>
+     *   <li>Кнопку возврата к родительской категории</li>
+     * </ul>
+     */
+    @Test
+    public void handleCallbackExpandsCategory() {
+        when(categoryServiceMock.viewLevel(1L, 0, BrowseCommand.PAGE_SIZE)).thenReturn(new CategoryTreeLevel(
+                1L, "Электроника", null, List.of(new CategoryTreeLevel.Child(2L, "Смартфоны", false)), 0, 25));
+
+        EditMessageText edit = browseCommandTest.handleCallback(CHAT_ID, MESSAGE_ID, "1:0");
+
+        assertEquals(MESSAGE_ID, edit.getParameters().get("message_id"));
+        assertEquals("Категория \"Электроника\"\nПодкатегорий: 25", edit.getParameters().get("text"));
+        InlineKeyboardButton[][] keyboard =
+                ((InlineKeyboardMarkup) edit.getParameters().get("reply_markup")).inlineKeyboard();
+        assertEquals("browse:2:0", keyboard[0][0].callbackData());
+        assertEquals("browse:1:" + BrowseCommand.PAGE_SIZE, keyboard[1][0].callbackData());
+        assertEquals("browse:root:0", keyboard[2][0].callbackData());
+    }
+
+    /**
+     * Тестирует нажатие на кнопку удаленной категории.
+     * <p>
+     * Ожидаемый результат: сообщение об ошибке и кнопка возврата к корневым категориям.
+     */
+    @Test
+    public void handleCallbackCategoryNotFound() {
+        when(categoryServiceMock.viewLevel(5L, 0, BrowseCommand.PAGE_SIZE))
+                .thenThrow(new CategoryNotFoundException("Категория не найдена, возможно она была удалена"));
+
+        EditMessageText edit = browseCommandTest.handleCallback(CHAT_ID, MESSAGE_ID, "5:0");
+
+        assertEquals("Ошибка: Категория не найдена, возможно она была удалена", edit.getParameters().get("text"));
+    }
+}
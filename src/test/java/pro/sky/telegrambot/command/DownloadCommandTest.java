@@ -1,14 +1,33 @@
 package pro.sky.telegrambot.command;
 
+import com.pengrad.telegrambot.model.Document;
+import com.pengrad.telegrambot.model.Message;
+import com.pengrad.telegrambot.request.SendDocument;
 import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.SendResponse;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.model.ExportArtifact;
+import pro.sky.telegrambot.service.CategoryExportService;
+import pro.sky.telegrambot.service.TelegramSender;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Тестовый класс для проверки функциональности команды загрузки.
@@ -28,6 +47,12 @@ public class DownloadCommandTest {
      */
     private final Long CHAT_ID = 123L;
 
+    @Mock
+    CategoryExportService exportServiceMock;
+
+    @Mock
+    TelegramSender telegramSenderMock;
+
     @InjectMocks
     DownloadCommand downloadCommandTest;
 
@@ -65,4 +90,88 @@ public class DownloadCommandTest {
         assertEquals(CHAT_ID, sendMessage
                 .getParameters().get("chat_id"));
     }
+
+    /**
+     * Проверяет загрузку документа, который еще не отправлялся.
+     * <p>
+     * Ожидается отправка файла документа и сохранение идентификатора файла из ответа Telegram.
+     */
+    @Test
+    public void executeUploadsNewDocument() throws IOException {
+        Path file = Files.createTempFile("categories", ".xlsx");
+        try {
+            CategoryExportService.Lease lease = mock(CategoryExportService.Lease.class);
+            when(lease.artifact()).thenReturn(new ExportArtifact(1L, file, null));
+            when(exportServiceMock.acquireArtifact()).thenReturn(lease);
+            Document document = mock(Document.class);
+            when(document.fileId()).thenReturn("file-1");
+            Message message = mock(Message.class);
+            when(message.document()).thenReturn(document);
+            SendResponse response = mock(SendResponse.class);
+            when(response.isOk()).thenReturn(true);
+            when(response.message()).thenReturn(message);
+            ArgumentCaptor<SendDocument> captor = ArgumentCaptor.forClass(SendDocument.class);
+            when(telegramSenderMock.send(captor.capture())).thenReturn(CompletableFuture.completedFuture(response));
+
+            downloadCommandTest.execute(CHAT_ID, List.of("/download"));
+
+            assertEquals(file.toFile(), captor.getValue().getParameters().get("document"));
+            verify(lease).rememberFileId("file-1");
+            verify(lease).close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Проверяет повторную отправку документа неизмененного дерева.
+     * <p>
+     * Ожидается отправка по идентификатору файла без загрузки содержимого.
+     */
+    @Test
+    public void executeSendsKnownDocumentByFileId() throws IOException {
+        CategoryExportService.Lease lease = mock(CategoryExportService.Lease.class);
+        when(lease.artifact()).thenReturn(new ExportArtifact(1L, Path.of("missing.xlsx"), "file-1"));
+        when(exportServiceMock.acquireArtifact()).thenReturn(lease);
+        SendResponse response = mock(SendResponse.class);
+        when(response.isOk()).thenReturn(true);
+        ArgumentCaptor<SendDocument> captor = ArgumentCaptor.forClass(SendDocument.class);
+        when(telegramSenderMock.send(captor.capture())).thenReturn(CompletableFuture.completedFuture(response));
+
+        downloadCommandTest.execute(CHAT_ID, List.of("/download"));
+
+        assertEquals(1, captor.getAllValues().size());
+        assertEquals("file-1", captor.getValue().getParameters().get("document"));
+        verify(lease).close();
+    }
+
+    /**
+     * Проверяет сообщение об ошибке, полученной при асинхронной загрузке документа.
+     * <p>
+     * Ожидается отправка отдельного сообщения об ошибке и освобождение документа.
+     */
+    @Test
+    public void executeReportsFailedUpload() throws IOException {
+        Path file = Files.createTempFile("categories", ".xlsx");
+        try {
+            CategoryExportService.Lease lease = mock(CategoryExportService.Lease.class);
+            when(lease.artifact()).thenReturn(new ExportArtifact(1L, file, null));
+            when(exportServiceMock.acquireArtifact()).thenReturn(lease);
+            SendResponse response = mock(SendResponse.class);
+            when(response.isOk()).thenReturn(false);
+            when(response.description()).thenReturn("Bad Request");
+            when(telegramSenderMock.send(any(SendDocument.class)))
+                    .thenReturn(CompletableFuture.completedFuture(response));
+
+            downloadCommandTest.execute(CHAT_ID, List.of("/download"));
+
+            ArgumentCaptor<SendMessage> captor = ArgumentCaptor.forClass(SendMessage.class);
+            verify(telegramSenderMock, times(2)).send(captor.capture());
+            assertEquals("Ошибка отправки файла: Bad Request", captor.getValue().getParameters().get("text"));
+            verify(lease, never()).rememberFileId(any());
+            verify(lease).close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
 }
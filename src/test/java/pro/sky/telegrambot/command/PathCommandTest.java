@@ -0,0 +1,97 @@
+package pro.sky.telegrambot.command;
+
+import com.pengrad.telegrambot.request.SendMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.service.CategoryService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты для {@link PathCommand}, проверяющие вывод пути к категории.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Получение имени команды</li>
+ *   <li>Вывод пути от корня до категории</li>
+ *   <li>Обработку несуществующей категории и неверного формата</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class PathCommandTest {
+
+    /**
+     * Тестовый идентификатор чата для проверки отправки сообщений.
+     */
+    private final Long CHAT_ID = 123L;
+
+    @Mock
+    CategoryService categoryServiceMock;
+
+    @InjectMocks
+    PathCommand pathCommandTest;
+
+    /**
+     * Проверяет корректность возвращаемого имени команды.
+     * <p>
+     * Ожидаемый результат: имя команды должно соответствовать {@link NamesCommand#PATH}.
+     */
+    @Test
+    public void getNameCommandTest() {
+        assertEquals(NamesCommand.PATH, pathCommandTest.getNameCommand());
+    }
+
+    /**
+     * Тестирует вывод пути к вложенной категории.
+     * <p>
+     * Ожидаемый результат: названия категорий перечислены от корня до указанной категории.
+     */
+    @Test
+    public void executeShowsPath() {
+        when(categoryServiceMock.findPath("Смартфоны"))
+                .thenReturn(List.of("Электроника", "Телефоны", "Смартфоны"));
+
+        SendMessage sendMessage = pathCommandTest.execute(CHAT_ID, List.of("/path", "Смартфоны"));
+
+        assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
+        assertEquals("Путь к категории \"Смартфоны\":\nЭлектроника → Телефоны → Смартфоны",
+                sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует запрос пути к несуществующей категории.
+     * <p>
+     * Ожидаемый результат: пользователь получает сообщение об ошибке.
+     */
+    @Test
+    public void executeCategoryNotFound() {
+        when(categoryServiceMock.findPath("a"))
+                .thenThrow(new CategoryNotFoundException("Категория \"a\" не найдена"));
+
+        SendMessage sendMessage = pathCommandTest.execute(CHAT_ID, List.of("/path", "a"));
+
+        assertEquals("Ошибка: Категория \"a\" не найдена", sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует обработку команды без названия категории.
+     * <p>
+     * Ожидаемый результат: сообщение об ошибке формата без обращения к сервису.
+     */
+    @Test
+    public void executeWithoutName() {
+        SendMessage sendMessage = pathCommandTest.execute(CHAT_ID, List.of("/path"));
+
+        assertEquals("Неверный формат команды! Используйте: /path \"название элемента\"",
+                sendMessage.getParameters().get("text"));
+        verifyNoInteractions(categoryServiceMock);
+    }
+}
@@ -6,12 +6,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.model.CategoryRemoval;
 import pro.sky.telegrambot.service.CategoryService;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit-тесты для {@link RemoveElementCommand}, проверяющие корректность работы команды удаления элементов.
@@ -109,10 +111,37 @@ public class RemoveElementCommandTest {
     public void executeTwoArguments() {
         String commandText1 = "/removeElement";
         String commandText2 = "a";
+        when(categoryServiceMock.removeCategory("a")).thenReturn(new CategoryRemoval(1, false));
         SendMessage sendMessage = removeElementCommandTest.execute(CHAT_ID, List.of(commandText1, commandText2));
         verify(categoryServiceMock).removeCategory("a");
         assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
         assertEquals("Элемент \"a\" удален.",
                 sendMessage.getParameters().get("text"));
     }
+
+    /**
+     * Тестирует удаление элемента с вложенными категориями.
+     * <p>
+     * Ожидаемый результат: сообщение содержит общее количество удаленных категорий.
+     */
+    @Test
+    public void executeRemovesSubtree() {
+        when(categoryServiceMock.removeCategory("a")).thenReturn(new CategoryRemoval(5, false));
+        SendMessage sendMessage = removeElementCommandTest.execute(CHAT_ID, List.of("/removeElement", "a"));
+        assertEquals("Элемент \"a\" удален вместе с вложенными категориями (всего удалено: 5).",
+                sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует удаление большой ветви в фоновом режиме.
+     * <p>
+     * Ожидаемый результат: пользователь сразу получает ответ о фоновом удалении вложенных категорий.
+     */
+    @Test
+    public void executeRemovesSubtreeInBackground() {
+        when(categoryServiceMock.removeCategory("a")).thenReturn(new CategoryRemoval(50000, true));
+        SendMessage sendMessage = removeElementCommandTest.execute(CHAT_ID, List.of("/removeElement", "a"));
+        assertEquals("Элемент \"a\" удален из дерева. Вложенные категории (50000) удаляются в фоновом режиме.",
+                sendMessage.getParameters().get("text"));
+    }
 }
@@ -9,6 +9,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.service.TelegramSender;
 
 import java.util.List;
 
@@ -44,6 +45,9 @@ public class UploadCommandTest {
     @Mock
     TelegramBot telegramBotMock;
 
+    @Mock
+    TelegramSender telegramSenderMock;
+
     @InjectMocks
     UploadCommand uploadCommandTest;
 
@@ -99,7 +103,7 @@ public class UploadCommandTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Факт отправки сообщения через TelegramBot</li>
+     *   <li>Постановку сообщения в очередь отправки</li>
      *   <li>Корректность установки chat_id в отправляемом сообщении</li>
      *   <li>Использование ArgumentCaptor для перехвата отправляемого сообщения</li>
      * </ul>
@@ -110,7 +114,7 @@ public class UploadCommandTest {
 
         uploadCommandTest.handleDocumentExcel(CHAT_ID, message);
         ArgumentCaptor<SendMessage> messageCaptor = ArgumentCaptor.forClass(SendMessage.class);
-        verify(telegramBotMock).execute(messageCaptor.capture());
+        verify(telegramSenderMock).send(messageCaptor.capture());
 
         SendMessage sendMessage = messageCaptor.getValue();
         assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
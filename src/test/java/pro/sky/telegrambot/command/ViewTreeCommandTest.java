@@ -6,12 +6,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.exception.CategoryNotFoundException;
+import pro.sky.telegrambot.exception.TreePageNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreePage;
 import pro.sky.telegrambot.service.CategoryService;
+import pro.sky.telegrambot.service.CategoryTreeRenderer;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  * Unit-тесты для команды просмотра дерева категорий {@link ViewTreeCommand}.
@@ -52,32 +62,79 @@ public class ViewTreeCommandTest {
     }
 
     /**
-     * Тестирует обработку команды с невалидным количеством аргументов (2 аргумента).
+     * Проверяет аргументы, которые можно указать без кавычек.
+     * <p>
+     * Ожидаемый результат: без кавычек принимаются только {@code --page} и числа.
+     */
+    @Test
+    public void acceptsUnquotedPageOptionAndNumbers() {
+        assertTrue(viewTreeCommandTest.acceptsUnquoted("--page"));
+        assertTrue(viewTreeCommandTest.acceptsUnquoted("2"));
+        assertFalse(viewTreeCommandTest.acceptsUnquoted("--x"));
+        assertFalse(viewTreeCommandTest.acceptsUnquoted("Книги"));
+    }
+
+    /**
+     * Тестирует обработку команды с нечисловой глубиной поддерева.
      * <p>
      * Проверяет:
      * <ul>
      *   <li>Корректность установки chat_id в ответном сообщении</li>
      *   <li>Вывод сообщения об ошибке формата команды</li>
-     *   <li>Отсутствие вызова метода viewTree() сервиса категорий</li>
+     *   <li>Отсутствие вызова метода viewTree(int) сервиса категорий</li>
      * </ul>
      */
     @Test
     public void executeMoreThanOneArgument() {
         String commandText1 = "/viewTree";
         String commandText2 = "a";
-        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of(commandText1, commandText2));
+        String commandText3 = "b";
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID,
+                List.of(commandText1, commandText2, commandText3));
         assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
-        assertEquals("Неверный формат команды! Используйте: /viewTree",
+        assertEquals("Неверный формат команды! Глубина должна быть неотрицательным числом: " +
+                        "/viewTree \"название элемента\" [глубина] [номер страницы]",
                 sendMessage.getParameters().get("text"));
 
     }
 
+    /**
+     * Тестирует сообщения об ошибках для каждой неверной формы команды.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>{@code --page} без номера страницы или с лишними аргументами</li>
+     *   <li>Неположительный номер страницы поддерева</li>
+     *   <li>Слишком много аргументов</li>
+     *   <li>Отсутствие обращений к сервису категорий</li>
+     * </ul>
+     */
+    @Test
+    public void executeMalformedForms() {
+        String pageUsage = "Неверный формат команды! Используйте: /viewTree --page номер страницы";
+        assertEquals(pageUsage, viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "--page"))
+                .getParameters().get("text"));
+        assertEquals(pageUsage, viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "--page", "0"))
+                .getParameters().get("text"));
+        assertEquals(pageUsage, viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "--page", "1", "2"))
+                .getParameters().get("text"));
+        assertEquals("Неверный формат команды! Номер страницы должен быть положительным числом: " +
+                        "/viewTree \"название элемента\" [глубина] [номер страницы]",
+                viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "Книги", "1", "0"))
+                        .getParameters().get("text"));
+        assertEquals("Неверный формат команды! Используйте: /viewTree [--page номер страницы] " +
+                        "или /viewTree \"название элемента\" [глубина] [номер страницы]",
+                viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "Книги", "1", "1", "1"))
+                        .getParameters().get("text"));
+        verifyNoInteractions(categoryServiceMock);
+    }
+
     /**
      * Тестирует обработку команды с валидным количеством аргументов (1 аргумент).
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Вызов метода viewTree() сервиса категорий</li>
+     *   <li>Вызов метода viewTree(int) сервиса категорий</li>
      *   <li>Корректность установки chat_id в ответном сообщении</li>
      * </ul>
      */
@@ -85,7 +142,90 @@ public class ViewTreeCommandTest {
     public void executeOneArgument() {
         String commandText = "/viewTree";
         SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of(commandText));
-        verify(categoryServiceMock).viewTree();
+        verify(categoryServiceMock).viewTree(1);
         assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
     }
+
+    /**
+     * Тестирует вывод дерева, которое умещается на одной странице.
+     * <p>
+     * Ожидаемый результат: дерево выводится без номера страницы и подсказки.
+     */
+    @Test
+    public void executeSinglePage() {
+        when(categoryServiceMock.viewTree(1)).thenReturn(new CategoryTreePage(1, "- Корень\n", false));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree"));
+        assertEquals("Дерево категорий:\n- Корень\n", sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует вывод запрошенной страницы, за которой есть следующая.
+     * <p>
+     * Ожидаемый результат: текст содержит номер страницы и команду для перехода к следующей.
+     */
+    @Test
+    public void executePageWithNext() {
+        when(categoryServiceMock.viewTree(2)).thenReturn(new CategoryTreePage(2, "- Корень\n", true));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "--page", "2"));
+        assertEquals("Дерево категорий (страница 2):\n- Корень\n\nСледующая страница: /viewTree --page 3",
+                sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует запрос несуществующей страницы.
+     * <p>
+     * Ожидаемый результат: пользователь получает сообщение об ошибке из исключения.
+     */
+    @Test
+    public void executePageNotFound() {
+        when(categoryServiceMock.viewTree(5)).thenThrow(new TreePageNotFoundException("Страница 5 не найдена."));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "--page", "5"));
+        assertEquals("Ошибка: Страница 5 не найдена.", sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует вывод поддерева категории с ограничением глубины.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Передачу названия, глубины и номера страницы в сервис</li>
+     *   <li>Подсказку о следующей странице с теми же названием и глубиной</li>
+     * </ul>
+     */
+    @Test
+    public void executeSubtreeWithDepth() {
+        when(categoryServiceMock.viewSubtree("Электроника", 1, 1))
+                .thenReturn(new CategoryTreePage(1, "- Электроника\n  - Смартфоны\n", true));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "Электроника", "1"));
+        assertEquals("Поддерево категории \"Электроника\" (страница 1):\n- Электроника\n  - Смартфоны\n" +
+                        "\nСледующая страница: /viewTree \"Электроника\" 1 2",
+                sendMessage.getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует вывод поддерева категории, название которой состоит из цифр.
+     * <p>
+     * Ожидаемый результат: название не принимается за номер страницы, запрашивается поддерево категории.
+     */
+    @Test
+    public void executeSubtreeWithNumericName() {
+        when(categoryServiceMock.viewSubtree("2024", CategoryTreeRenderer.UNLIMITED_DEPTH, 1))
+                .thenReturn(new CategoryTreePage(1, "- 2024\n", false));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "2024"));
+        assertEquals("Поддерево категории \"2024\":\n- 2024\n", sendMessage.getParameters().get("text"));
+        verify(categoryServiceMock, never()).viewTree(anyInt());
+    }
+
+    /**
+     * Тестирует вывод поддерева несуществующей категории без указания глубины.
+     * <p>
+     * Ожидаемый результат: поддерево запрашивается без ограничения глубины, пользователь получает ошибку.
+     */
+    @Test
+    public void executeSubtreeNotFound() {
+        when(categoryServiceMock.viewSubtree("Книги", CategoryTreeRenderer.UNLIMITED_DEPTH, 1))
+                .thenThrow(new CategoryNotFoundException("Категория \"Книги\" не найдена"));
+        SendMessage sendMessage = viewTreeCommandTest.execute(CHAT_ID, List.of("/viewTree", "Книги"));
+        assertEquals("Ошибка: Категория \"Книги\" не найдена", sendMessage.getParameters().get("text"));
+    }
 }
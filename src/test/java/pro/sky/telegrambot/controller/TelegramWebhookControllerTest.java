@@ -0,0 +1,156 @@
+package pro.sky.telegrambot.controller;
+
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.Update;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import pro.sky.telegrambot.service.UpdateDispatcher;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit-тесты для {@link TelegramWebhookController}, отправляющие синтетические обновления
+ * HTTP-запросами через MockMvc.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Прием обновления с верным секретным токеном</li>
+ *   <li>Отклонение запросов без токена или с неверным токеном</li>
+ *   <li>Отклонение некорректного обновления</li>
+ *   <li>Прием серии обновлений из разных чатов</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class TelegramWebhookControllerTest {
+
+    private static final String PATH = "/telegram/webhook";
+    private static final String SECRET = "test-secret";
+
+    @Mock
+    private TelegramBot telegramBotMock;
+
+    @Mock
+    private UpdateDispatcher updateDispatcherMock;
+
+    private MockMvc mockMvc;
+
+    /**
+     * Настройка тестового окружения перед каждым тестом.
+     * <p>
+     * Поднимает контроллер без контекста приложения, адрес webhook не задан, поэтому регистрация не выполняется.
+     */
+    @BeforeEach
+    public void setUp() {
+        TelegramWebhookController controller =
+                new TelegramWebhookController(telegramBotMock, updateDispatcherMock, SECRET, "");
+        controller.init();
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .addPlaceholderValue("telegram.webhook.path", PATH)
+                .build();
+    }
+
+    /**
+     * Тестирует прием обновления с верным секретным токеном.
+     * <p>
+     * Ожидаемый результат: ответ 200 и передача разобранного обновления на обработку.
+     */
+    @Test
+    public void receiveUpdateDispatchesUpdate() throws Exception {
+        mockMvc.perform(post(PATH)
+                        .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(7, 123L, "/help")))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(updateDispatcherMock).dispatch(captor.capture());
+        assertEquals(7, captor.getValue().updateId());
+        assertEquals(123L, captor.getValue().message().chat().id());
+        assertEquals("/help", captor.getValue().message().text());
+        verifyNoInteractions(telegramBotMock);
+    }
+
+    /**
+     * Тестирует отклонение запросов без секретного токена и с неверным токеном.
+     * <p>
+     * Ожидаемый результат: ответ 401, обновления не передаются на обработку.
+     */
+    @Test
+    public void receiveUpdateRejectsWrongSecret() throws Exception {
+        mockMvc.perform(post(PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(1, 123L, "/help")))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post(PATH)
+                        .header(TelegramWebhookController.SECRET_HEADER, "wrong")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(update(2, 123L, "/help")))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(updateDispatcherMock);
+    }
+
+    /**
+     * Тестирует отклонение тела запроса, не являющегося обновлением Telegram.
+     * <p>
+     * Ожидаемый результат: ответ 400, обновление не передается на обработку.
+     */
+    @Test
+    public void receiveUpdateRejectsMalformedBody() throws Exception {
+        mockMvc.perform(post(PATH)
+                        .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"update_id\": "))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(updateDispatcherMock);
+    }
+
+    /**
+     * Тестирует прием серии синтетических обновлений из разных чатов.
+     * <p>
+     * Ожидаемый результат: каждое обновление подтверждено и передано на обработку ровно один раз.
+     */
+    @Test
+    public void receiveUpdateAcceptsSyntheticBurst() throws Exception {
+        int updates = 100;
+        for (int i = 0; i < updates; i++) {
+            mockMvc.perform(post(PATH)
+                            .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(update(i, i % 10, "/viewTree")))
+                    .andExpect(status().isOk());
+        }
+
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(updateDispatcherMock, times(updates)).dispatch(captor.capture());
+        Set<Integer> ids = new HashSet<>();
+        captor.getAllValues().forEach(update -> ids.add(update.updateId()));
+        assertEquals(updates, ids.size());
+    }
+
+    /**
+     * Формирует JSON синтетического обновления с текстовым сообщением.
+     */
+    private static String update(int updateId, long chatId, String text) {
+        return """
+                {"update_id": %d,
+                 "message": {"message_id": %d, "date": 0,
+                             "chat": {"id": %d, "type": "private"},
+                             "text": "%s"}}
+                """.formatted(updateId, updateId, chatId, text);
+    }
+}
@@ -9,7 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import pro.sky.telegrambot.service.CommandService;
+import pro.sky.telegrambot.service.UpdateDispatcher;
 
 
 import java.util.Collections;
@@ -30,7 +30,7 @@ import static org.springframework.test.util.ReflectionTestUtils.setField;
  *
  * <p>Использует:
  * <ul>
- *   <li>Mockito для мокирования {@link CommandService}</li>
+ *   <li>Mockito для мокирования {@link UpdateDispatcher}</li>
  *   <li>ReflectionTestUtils для установки значений в final-поля Telegram API</li>
  * </ul>
  */
@@ -38,7 +38,7 @@ import static org.springframework.test.util.ReflectionTestUtils.setField;
 public class TelegramBotUpdatesListenerTest {
 
     @Mock
-    CommandService commandServiceMock;
+    UpdateDispatcher updateDispatcherMock;
 
     @InjectMocks
     TelegramBotUpdatesListener telegramBotUpdatesListenerTest;
@@ -48,7 +48,7 @@ public class TelegramBotUpdatesListenerTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Вызов метода processCommand() с правильным обновлением</li>
+     *   <li>Передачу обновления в dispatch()</li>
      *   <li>Возврат корректного статуса подтверждения (CONFIRMED_UPDATES_ALL)</li>
      * </ul>
      */
@@ -61,7 +61,7 @@ public class TelegramBotUpdatesListenerTest {
 
         int result = telegramBotUpdatesListenerTest.process(updates);
 
-        verify(commandServiceMock).processCommand(update);
+        verify(updateDispatcherMock).dispatch(update);
         assertEquals(UpdatesListener.CONFIRMED_UPDATES_ALL, result);
     }
 
@@ -70,7 +70,7 @@ public class TelegramBotUpdatesListenerTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Отсутствие вызовов сервиса обработки команд</li>
+     *   <li>Отсутствие передачи обновления на обработку</li>
      *   <li>Возврат корректного статуса подтверждения (CONFIRMED_UPDATES_ALL)</li>
      *   <li>Корректную обработку null-значений</li>
      * </ul>
@@ -83,7 +83,7 @@ public class TelegramBotUpdatesListenerTest {
 
         int result = telegramBotUpdatesListenerTest.process(updates);
 
-        verifyNoMoreInteractions(commandServiceMock);
+        verifyNoMoreInteractions(updateDispatcherMock);
         assertEquals(UpdatesListener.CONFIRMED_UPDATES_ALL, result);
     }
 
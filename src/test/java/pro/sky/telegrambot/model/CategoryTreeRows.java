@@ -0,0 +1,64 @@
+package pro.sky.telegrambot.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фабрика строк дерева категорий для тестов.
+ */
+public final class CategoryTreeRows {
+
+    private CategoryTreeRows() {
+    }
+
+    /**
+     * Создает строку дерева категорий.
+     *
+     * @param id       идентификатор категории
+     * @param name     название категории
+     * @param parentId идентификатор родителя или null для корня
+     * @param depth    уровень вложенности
+     * @return строка дерева
+     */
+    public static CategoryTreeRow row(Long id, String name, Long parentId, int depth) {
+        return new CategoryTreeRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getParentId() {
+                return parentId;
+            }
+
+            @Override
+            public Integer getDepth() {
+                return depth;
+            }
+        };
+    }
+
+    /**
+     * Создает сбалансированное двоичное дерево категорий с названиями вида "Категория N".
+     * Родителем категории N является категория N / 2.
+     *
+     * @param size количество категорий
+     * @return строки дерева в порядке рекурсивного запроса
+     */
+    public static List<CategoryTreeRow> binaryTree(int size) {
+        List<CategoryTreeRow> rows = new ArrayList<>(size);
+        if (size > 0) {
+            rows.add(row(1L, "Категория 1", null, 0));
+        }
+        for (long id = 2; id <= size; id++) {
+            rows.add(row(id, "Категория " + id, id / 2, 63 - Long.numberOfLeadingZeros(id)));
+        }
+        return rows;
+    }
+}
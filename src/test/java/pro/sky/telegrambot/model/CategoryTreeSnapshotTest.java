@@ -0,0 +1,110 @@
+package pro.sky.telegrambot.model;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pro.sky.telegrambot.model.CategoryTreeRows.binaryTree;
+import static pro.sky.telegrambot.model.CategoryTreeRows.row;
+
+/**
+ * Unit-тесты для {@link CategoryTreeSnapshot}, проверяющие компактное представление дерева категорий.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Связи родитель-потомок в массивах снимка</li>
+ *   <li>Поиск категорий по названию, в том числе на кириллице</li>
+ *   <li>Объем памяти, занимаемый одним узлом дерева</li>
+ * </ul>
+ */
+public class CategoryTreeSnapshotTest {
+
+    /**
+     * Тестирует построение связей родитель-потомок.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Список корневых категорий</li>
+     *   <li>Порядок дочерних категорий</li>
+     *   <li>Ссылки на родителя</li>
+     * </ul>
+     */
+    @Test
+    public void ofBuildsParentChildLinks() {
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(5L, "Книги", null, 0),
+                row(7L, "Смартфоны", 1L, 1),
+                row(9L, "Ноутбуки", 1L, 1)));
+
+        assertEquals(4, snapshot.size());
+        assertEquals(2, snapshot.rootCount());
+        int electronics = snapshot.root(0);
+        assertEquals("Электроника", snapshot.name(electronics));
+        assertEquals(2, snapshot.childCount(electronics));
+        assertEquals("Смартфоны", snapshot.name(snapshot.child(electronics, 0)));
+        assertEquals("Ноутбуки", snapshot.name(snapshot.child(electronics, 1)));
+        assertEquals(electronics, snapshot.parent(snapshot.child(electronics, 1)));
+        assertEquals(CategoryTreeSnapshot.NO_NODE, snapshot.parent(snapshot.root(1)));
+        assertEquals(0, snapshot.childCount(snapshot.root(1)));
+    }
+
+    /**
+     * Тестирует подсчет длины названия без декодирования для ASCII, кириллицы и суррогатных пар.
+     */
+    @Test
+    public void nameLengthMatchesStringLength() {
+        List<String> names = List.of("Books", "Электроника", "Игры 🎮");
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, names.get(0), null, 0),
+                row(2L, names.get(1), null, 0),
+                row(3L, names.get(2), null, 0)));
+
+        for (int node = 0; node < snapshot.size(); node++) {
+            assertEquals(snapshot.name(node).length(), snapshot.nameLength(node));
+        }
+    }
+
+    /**
+     * Тестирует поиск категорий по названию и идентификатору.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Поиск существующих категорий</li>
+     *   <li>Результат поиска несуществующей категории</li>
+     *   <li>Поиск в пустом дереве</li>
+     * </ul>
+     */
+    @Test
+    public void indexOfFindsCategoriesByName() {
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Смартфоны", 1L, 1)));
+
+        assertEquals(2L, snapshot.id(snapshot.indexOf("Смартфоны")));
+        assertEquals(1L, snapshot.id(snapshot.indexOf("Электроника")));
+        assertEquals(CategoryTreeSnapshot.NO_NODE, snapshot.indexOf("Смартфон"));
+        assertEquals(CategoryTreeSnapshot.NO_NODE,
+                CategoryTreeSnapshot.of(1L, List.of()).indexOf("Электроника"));
+        assertEquals("Смартфоны", snapshot.name(snapshot.indexOfId(2L)));
+        assertEquals(CategoryTreeSnapshot.NO_NODE, snapshot.indexOfId(3L));
+    }
+
+    /**
+     * Измеряет с помощью JOL объем памяти, который занимает снимок большого дерева,
+     * и проверяет, что на один узел приходится не более 64 байт вместе с названием.
+     */
+    @Test
+    public void footprintPerNode() {
+        int size = 100_000;
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, binaryTree(size));
+        long totalBytes = GraphLayout.parseInstance(snapshot).totalSize();
+        double bytesPerNode = (double) totalBytes / size;
+
+        System.out.printf("CategoryTreeSnapshot: %d nodes, %d bytes, %.1f bytes per node%n",
+                size, totalBytes, bytesPerNode);
+        assertTrue(bytesPerNode < 64, "bytes per node: " + bytesPerNode);
+    }
+}
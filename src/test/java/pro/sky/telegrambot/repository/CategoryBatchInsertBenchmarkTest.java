@@ -0,0 +1,140 @@
+package pro.sky.telegrambot.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение скорости загрузки большого дерева категорий при разных способах генерации идентификаторов.
+ * <p>
+ * Воспроизводит запросы, которые Hibernate отправляет при сохранении загруженной таблицы:
+ * <ul>
+ *   <li>до перехода на последовательность - {@code IDENTITY}, по одному {@code INSERT ... RETURNING id}
+ *   и одному {@code UPDATE} на строку</li>
+ *   <li>после - идентификаторы выделяются блоками из последовательности, а вставки и обновления
+ *   отправляются пакетами с {@code reWriteBatchedInserts}</li>
+ * </ul>
+ * Требует PostgreSQL и запускается только при заданной переменной окружения
+ * {@code CATEGORY_BENCHMARK_DB_URL} (а также {@code CATEGORY_BENCHMARK_DB_USER}
+ * и {@code CATEGORY_BENCHMARK_DB_PASSWORD}). Данные создаются во временной схеме
+ * {@code category_batch_benchmark}, которая удаляется после завершения.
+ */
+@EnabledIfEnvironmentVariable(named = "CATEGORY_BENCHMARK_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CategoryBatchInsertBenchmarkTest {
+
+    private static final int ROWS = 100_000;
+    private static final int BATCH_SIZE = 500;
+    private static final int CHAIN_LENGTH = 40;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getenv("CATEGORY_BENCHMARK_DB_URL"),
+                System.getenv("CATEGORY_BENCHMARK_DB_USER"), System.getenv("CATEGORY_BENCHMARK_DB_PASSWORD"), true);
+        Properties properties = new Properties();
+        properties.setProperty("reWriteBatchedInserts", "true");
+        dataSource.setConnectionProperties(properties);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_batch_benchmark CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA category_batch_benchmark");
+        jdbcTemplate.execute("SET search_path TO category_batch_benchmark");
+    }
+
+    @BeforeEach
+    public void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS category_tree");
+        jdbcTemplate.execute("""
+                CREATE TABLE category_tree (
+                    id BIGSERIAL PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL UNIQUE,
+                    id_parent BIGINT REFERENCES category_tree (id) ON DELETE CASCADE
+                )
+                """);
+        jdbcTemplate.execute("ALTER SEQUENCE category_tree_id_seq INCREMENT BY " + BATCH_SIZE);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_batch_benchmark CASCADE");
+        dataSource.destroy();
+    }
+
+    /**
+     * Загрузка с генерацией идентификаторов на стороне базы данных: одна строка - один запрос.
+     */
+    @Test
+    public void identityRowByRow() {
+        long start = System.nanoTime();
+        long[] ids = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            ids[i] = jdbcTemplate.queryForObject(
+                    "INSERT INTO category_tree (name) VALUES (?) RETURNING id", Long.class, name(i));
+        }
+        for (int i = 1; i < ROWS; i++) {
+            jdbcTemplate.update("UPDATE category_tree SET id_parent = ? WHERE id = ?", ids[parent(i)], ids[i]);
+        }
+        report("IDENTITY, построчно", start, 2L * ROWS - 1);
+    }
+
+    /**
+     * Загрузка с идентификаторами из последовательности и пакетными запросами.
+     */
+    @Test
+    public void sequenceBatched() {
+        long start = System.nanoTime();
+        long[] ids = new long[ROWS];
+        long statements = 0;
+        for (int from = 0; from < ROWS; from += BATCH_SIZE) {
+            long high = jdbcTemplate.queryForObject("SELECT nextval('category_tree_id_seq')", Long.class);
+            int to = Math.min(ROWS, from + BATCH_SIZE);
+            List<Object[]> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids[i] = high - BATCH_SIZE + 1 + i - from;
+                rows.add(new Object[]{ids[i], name(i)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO category_tree (id, name) VALUES (?, ?)", rows);
+            statements += 2;
+        }
+        for (int from = 1; from < ROWS; from += BATCH_SIZE) {
+            int to = Math.min(ROWS, from + BATCH_SIZE);
+            List<Object[]> rows = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                rows.add(new Object[]{ids[parent(i)], ids[i]});
+            }
+            jdbcTemplate.batchUpdate("UPDATE category_tree SET id_parent = ? WHERE id = ?", rows);
+            statements++;
+        }
+        report("SEQUENCE, пакетами по " + BATCH_SIZE, start, statements);
+    }
+
+    private void report(String title, long start, long statements) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT count(*) FROM category_tree", Integer.class));
+        assertEquals(ROWS - 1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM category_tree WHERE id_parent IS NOT NULL", Integer.class));
+        System.out.printf("%s: %d строк за %.2f с, %.0f строк/с, %d запросов%n",
+                title, ROWS, seconds, ROWS / seconds, statements);
+    }
+
+    private static String name(int i) {
+        return "Категория " + i;
+    }
+
+    private static int parent(int i) {
+        return i % CHAIN_LENGTH == 0 ? i / 2 : i - 1;
+    }
+}
@@ -0,0 +1,150 @@
+package pro.sky.telegrambot.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import pro.sky.telegrambot.model.CategoryTreeRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение запросов к таблице замыкания с рекурсивными запросами к списку смежности на глубоком дереве.
+ * <p>
+ * Требует PostgreSQL и запускается только при заданной переменной окружения
+ * {@code CATEGORY_BENCHMARK_DB_URL} (а также {@code CATEGORY_BENCHMARK_DB_USER}
+ * и {@code CATEGORY_BENCHMARK_DB_PASSWORD}). Данные создаются во временной схеме
+ * {@code category_benchmark}, которая удаляется после завершения.
+ * Кроме замеров времени проверяется, что оба способа возвращают одинаковые результаты.
+ */
+@EnabledIfEnvironmentVariable(named = "CATEGORY_BENCHMARK_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CategoryClosureBenchmarkTest {
+
+    private static final int TREE_SIZE = 20_000;
+    private static final int CHAIN_LENGTH = 40;
+    private static final int ITERATIONS = 50;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CategoryClosureRepository closureRepository;
+
+    @BeforeAll
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getenv("CATEGORY_BENCHMARK_DB_URL"),
+                System.getenv("CATEGORY_BENCHMARK_DB_USER"), System.getenv("CATEGORY_BENCHMARK_DB_PASSWORD"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        closureRepository = new CategoryClosureRepository(jdbcTemplate);
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_benchmark CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA category_benchmark");
+        jdbcTemplate.execute("SET search_path TO category_benchmark");
+        jdbcTemplate.execute("""
+                CREATE TABLE category_tree (
+                    id BIGINT PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL,
+                    id_parent BIGINT REFERENCES category_tree (id) ON DELETE CASCADE,
+                    detached BOOLEAN NOT NULL DEFAULT FALSE
+                )
+                """);
+        jdbcTemplate.execute("CREATE INDEX category_tree_parent_idx ON category_tree (id_parent)");
+        jdbcTemplate.execute("""
+                CREATE TABLE category_closure (
+                    ancestor BIGINT NOT NULL REFERENCES category_tree (id) ON DELETE CASCADE,
+                    descendant BIGINT NOT NULL REFERENCES category_tree (id) ON DELETE CASCADE,
+                    depth INTEGER NOT NULL,
+                    PRIMARY KEY (ancestor, depth, descendant)
+                )
+                """);
+        jdbcTemplate.execute(
+                "CREATE UNIQUE INDEX category_closure_descendant_idx ON category_closure (descendant, ancestor)");
+
+        List<Object[]> rows = new ArrayList<>(TREE_SIZE);
+        for (long id = 1; id <= TREE_SIZE; id++) {
+            Long parentId = id == 1 ? null : id % CHAIN_LENGTH == 0 ? id / 2 : id - 1;
+            rows.add(new Object[]{id, "Категория " + id, parentId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO category_tree (id, name, id_parent) VALUES (?, ?, ?)", rows);
+        closureRepository.rebuild();
+        jdbcTemplate.execute("ANALYZE category_tree");
+        jdbcTemplate.execute("ANALYZE category_closure");
+    }
+
+    @AfterAll
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_benchmark CASCADE");
+        dataSource.destroy();
+    }
+
+    /**
+     * Сравнивает поиск потомков, предков и размера поддерева.
+     */
+    @Test
+    public void compareHierarchyQueries() {
+        long[] sample = {1, TREE_SIZE / 10, TREE_SIZE / 4, TREE_SIZE / 2, TREE_SIZE - 1};
+
+        benchmark("Потомки", sample,
+                id -> jdbcTemplate.queryForList("""
+                        WITH RECURSIVE subtree AS (
+                            SELECT id FROM category_tree WHERE id = ?
+                            UNION ALL
+                            SELECT c.id FROM category_tree c JOIN subtree s ON c.id_parent = s.id
+                        )
+                        SELECT id FROM subtree ORDER BY id
+                        """, Long.class, id),
+                id -> closureRepository.findSubtree("Категория " + id, Integer.MAX_VALUE).stream()
+                        .map(CategoryTreeRow::getId).sorted().collect(Collectors.toList()));
+
+        benchmark("Предки", sample,
+                id -> jdbcTemplate.queryForList("""
+                        WITH RECURSIVE path AS (
+                            SELECT id, id_parent, 0 AS depth FROM category_tree WHERE id = ?
+                            UNION ALL
+                            SELECT c.id, c.id_parent, p.depth + 1 FROM category_tree c JOIN path p ON c.id = p.id_parent
+                        )
+                        SELECT id FROM path ORDER BY depth DESC
+                        """, Long.class, id),
+                id -> closureRepository.findAncestors("Категория " + id).stream()
+                        .map(CategoryTreeRow::getId).collect(Collectors.toList()));
+
+        benchmark("Размер поддерева", sample,
+                id -> List.of(jdbcTemplate.queryForObject("""
+                        WITH RECURSIVE subtree AS (
+                            SELECT id FROM category_tree WHERE id = ?
+                            UNION ALL
+                            SELECT c.id FROM category_tree c JOIN subtree s ON c.id_parent = s.id
+                        )
+                        SELECT count(*) FROM subtree
+                        """, Long.class, id)),
+                id -> List.of((long) closureRepository.countSubtree("Категория " + id)));
+    }
+
+    private void benchmark(String title, long[] sample, LongFunction<List<Long>> adjacency,
+                           LongFunction<List<Long>> closure) {
+        for (long id : sample) {
+            assertEquals(adjacency.apply(id), closure.apply(id), title + " для категории " + id);
+        }
+        long adjacencyNanos = measure(sample, adjacency);
+        long closureNanos = measure(sample, closure);
+        System.out.printf("%s: список смежности %.2f мс, таблица замыкания %.2f мс на запрос%n", title,
+                adjacencyNanos / 1e6 / (ITERATIONS * sample.length), closureNanos / 1e6 / (ITERATIONS * sample.length));
+    }
+
+    private long measure(long[] sample, LongFunction<List<Long>> query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (long id : sample) {
+                query.apply(id);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
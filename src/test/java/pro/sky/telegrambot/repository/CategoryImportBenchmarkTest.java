@@ -0,0 +1,143 @@
+package pro.sky.telegrambot.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import pro.sky.telegrambot.model.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка и замер массовой загрузки категорий через {@link CategoryImportRepository}.
+ * <p>
+ * Требует PostgreSQL и запускается только при заданной переменной окружения
+ * {@code CATEGORY_BENCHMARK_DB_URL} (а также {@code CATEGORY_BENCHMARK_DB_USER}
+ * и {@code CATEGORY_BENCHMARK_DB_PASSWORD}). Данные создаются во временной схеме
+ * {@code category_import_benchmark}, которая удаляется после завершения.
+ */
+@EnabledIfEnvironmentVariable(named = "CATEGORY_BENCHMARK_DB_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CategoryImportBenchmarkTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int CHAIN_LENGTH = 40;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CategoryImportRepository importRepository;
+
+    @BeforeAll
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(System.getenv("CATEGORY_BENCHMARK_DB_URL"),
+                System.getenv("CATEGORY_BENCHMARK_DB_USER"), System.getenv("CATEGORY_BENCHMARK_DB_PASSWORD"), true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        importRepository = new CategoryImportRepository(jdbcTemplate);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_import_benchmark CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA category_import_benchmark");
+        jdbcTemplate.execute("SET search_path TO category_import_benchmark");
+    }
+
+    @BeforeEach
+    public void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS category_tree");
+        jdbcTemplate.execute("""
+                CREATE TABLE category_tree (
+                    id BIGSERIAL PRIMARY KEY,
+                    name VARCHAR(100) NOT NULL UNIQUE,
+                    id_parent BIGINT REFERENCES category_tree (id) ON DELETE CASCADE
+                )
+                """);
+        jdbcTemplate.execute("ALTER SEQUENCE category_tree_id_seq INCREMENT BY " + Category.ID_ALLOCATION_SIZE);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS category_import_benchmark CASCADE");
+        dataSource.destroy();
+    }
+
+    /**
+     * Проверяет слияние с существующими категориями.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Существующая категория не создается повторно и переносится под родителя из файла</li>
+     *   <li>Новые категории получают идентификаторы из последовательности без пересечений</li>
+     *   <li>Названия с кавычками и запятыми передаются без искажений</li>
+     * </ul>
+     */
+    @Test
+    public void mergesWithExistingCategories() {
+        jdbcTemplate.update("INSERT INTO category_tree (name) VALUES ('Existing')");
+        long existingId = jdbcTemplate.queryForObject(
+                "SELECT id FROM category_tree WHERE name = 'Existing'", Long.class);
+
+        importRows(List.of(category(1, "Root, \"main\"", null), category(2, "Existing", 1L),
+                category(3, "Leaf", 2L)));
+
+        Map<String, Object> existing = jdbcTemplate.queryForMap(
+                "SELECT t.id, p.name AS parent FROM category_tree t JOIN category_tree p ON p.id = t.id_parent " +
+                        "WHERE t.name = 'Existing'");
+        assertEquals(existingId, existing.get("id"));
+        assertEquals("Root, \"main\"", existing.get("parent"));
+        assertEquals("Existing", jdbcTemplate.queryForObject(
+                "SELECT p.name FROM category_tree t JOIN category_tree p ON p.id = t.id_parent WHERE t.name = 'Leaf'",
+                String.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT count(DISTINCT id) FROM category_tree", Integer.class));
+    }
+
+    /**
+     * Замеряет загрузку большого дерева.
+     */
+    @Test
+    public void importsLargeTree() {
+        List<Category> categories = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            categories.add(category(i, "Категория " + i,
+                    i == 1 ? null : (long) (i % CHAIN_LENGTH == 0 ? i / 2 : i - 1)));
+        }
+
+        long start = System.nanoTime();
+        importRows(categories);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT count(*) FROM category_tree", Integer.class));
+        assertEquals(ROWS - 1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM category_tree WHERE id_parent IS NOT NULL", Integer.class));
+        System.out.printf("COPY: %d строк за %.2f с, %.0f строк/с%n", ROWS, seconds, ROWS / seconds);
+    }
+
+    private void importRows(List<Category> categories) {
+        transactionTemplate.executeWithoutResult(status -> {
+            importRepository.createStagingTable();
+            importRepository.copyRows(categories);
+            importRepository.resolveTargets(Category.ID_ALLOCATION_SIZE);
+            importRepository.insertCreated();
+            importRepository.updateParents();
+        });
+    }
+
+    private static Category category(long id, String name, Long parentId) {
+        Category category = new Category(name);
+        category.setId(id);
+        if (parentId != null) {
+            Category parent = new Category();
+            parent.setId(parentId);
+            category.setParent(parent);
+        }
+        return category;
+    }
+}
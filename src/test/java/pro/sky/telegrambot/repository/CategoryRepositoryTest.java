@@ -0,0 +1,232 @@
+package pro.sky.telegrambot.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryTreeRow;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты запросов {@link CategoryRepository} на PostgreSQL со схемой из скриптов Liquibase.
+ * <p>
+ * Требуют PostgreSQL и запускаются только при заданной переменной окружения
+ * {@code CATEGORY_BENCHMARK_DB_URL} (а также {@code CATEGORY_BENCHMARK_DB_USER}
+ * и {@code CATEGORY_BENCHMARK_DB_PASSWORD}). Схема создается в отдельной схеме
+ * {@code category_repository_test}, каждый тест откатывается после завершения.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Загрузку многоуровневого дерева одним SQL-запросом независимо от его размера</li>
+ *   <li>Поиск и удаление категорий по названию при ожидающем фоновом удалении ветви</li>
+ *   <li>Повторное использование названий категорий из отсоединенной ветви</li>
+ *   <li>Заполнение материализованного пути триггерами при вставке и переносе категорий</li>
+ *   <li>Поиск предков, подсчет и удаление ветви порциями по материализованному пути</li>
+ * </ul>
+ */
+@EnabledIfEnvironmentVariable(named = "CATEGORY_BENCHMARK_DB_URL", matches = ".+")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@DataJpaTest(properties = {
+        "spring.datasource.url=${CATEGORY_BENCHMARK_DB_URL}",
+        "spring.datasource.username=${CATEGORY_BENCHMARK_DB_USER:}",
+        "spring.datasource.password=${CATEGORY_BENCHMARK_DB_PASSWORD:}",
+        "spring.datasource.hikari.schema=category_repository_test",
+        "spring.datasource.hikari.connection-init-sql=CREATE SCHEMA IF NOT EXISTS category_repository_test",
+        "spring.liquibase.default-schema=category_repository_test",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class CategoryRepositoryTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    /**
+     * Тестирует количество SQL-запросов при загрузке дерева.
+     * <p>
+     * Проверяет, что загрузка многоуровневого дерева и построение снимка по ней выполняют ровно один
+     * подготовленный запрос, и после увеличения дерева число запросов не меняется.
+     */
+    @Test
+    public void findTreeUsesOneStatementRegardlessOfSize() {
+        Category root = save("Root", null);
+        Category branch = save("Branch", root);
+        save("Leaf", branch);
+
+        assertEquals(1, countTreeStatements(3));
+
+        for (int i = 0; i < 10; i++) {
+            Category child = save("Child " + i, branch);
+            for (int j = 0; j < 5; j++) {
+                save("Grandchild " + i + "." + j, child);
+            }
+        }
+
+        assertEquals(1, countTreeStatements(63));
+    }
+
+    /**
+     * Тестирует поиск категорий по названию после отсоединения ветви.
+     * <p>
+     * Ожидаемый результат: вложенные категории отсоединенной ветви не находятся и не удаляются,
+     * категории вне ветви находятся как прежде.
+     */
+    @Test
+    public void nameLookupsIgnoreDetachedBranch() {
+        Category root = save("Root", null);
+        Category branch = save("Branch", root);
+        save("Leaf", branch);
+
+        categoryRepository.detachById(branch.getId());
+
+        assertTrue(categoryRepository.existsByName("Root"));
+        assertFalse(categoryRepository.existsByName("Branch"));
+        assertFalse(categoryRepository.existsByName("Leaf"));
+        assertTrue(categoryRepository.findByName("Leaf").isEmpty());
+        assertTrue(categoryRepository.findByNameIn(List.of("Root", "Leaf")).stream()
+                .map(Category::getName)
+                .allMatch("Root"::equals));
+        assertEquals(0, categoryRepository.deleteSubtreeByName("Leaf"));
+    }
+
+    /**
+     * Тестирует повторное добавление названия категории, удаление которой еще не завершено.
+     * <p>
+     * Ожидаемый результат: новая категория сохраняется и находится по названию вместо прежней.
+     */
+    @Test
+    public void nameOfPendingPurgeCanBeReused() {
+        Category root = save("Root", null);
+        Category branch = save("Branch", root);
+        Category leaf = save("Leaf", branch);
+
+        categoryRepository.detachById(branch.getId());
+        Category parent = categoryRepository.findByName("Root").orElseThrow();
+        Category readded = save("Leaf", parent);
+
+        Optional<Category> found = categoryRepository.findByName("Leaf");
+        assertTrue(found.isPresent());
+        assertEquals(readded.getId(), found.get().getId());
+        assertNotEquals(leaf.getId(), found.get().getId());
+        assertEquals(1, categoryRepository.deleteSubtreeByName("Leaf"));
+        assertTrue(categoryRepository.existsById(leaf.getId()));
+    }
+
+    /**
+     * Тестирует заполнение материализованного пути при вставке категорий.
+     * <p>
+     * Ожидаемый результат: путь состоит из идентификаторов от корня до самой категории.
+     */
+    @Test
+    public void insertSetsPath() {
+        Category root = save("Root", null);
+        Category child = save("Child", root);
+
+        assertEquals("/" + root.getId() + "/", pathOf(root));
+        assertEquals("/" + root.getId() + "/" + child.getId() + "/", pathOf(child));
+    }
+
+    /**
+     * Тестирует перенос категории к другому родителю.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Пути перенесенной категории и всех её потомков переписываются под новым родителем</li>
+     *   <li>Предки находятся по новому пути в порядке от корня</li>
+     * </ul>
+     */
+    @Test
+    public void reparentRewritesSubtreePaths() {
+        Category root = save("Root", null);
+        Category branch = save("Branch", root);
+        Category leaf = save("Leaf", branch);
+        Category other = save("Other", null);
+
+        branch.setParent(other);
+        categoryRepository.saveAndFlush(branch);
+
+        assertEquals("/" + other.getId() + "/" + branch.getId() + "/" + leaf.getId() + "/", pathOf(leaf));
+        List<CategoryTreeRow> ancestors = categoryRepository.findAncestors("Leaf");
+        assertEquals(List.of("Other", "Branch", "Leaf"),
+                ancestors.stream().map(CategoryTreeRow::getName).collect(Collectors.toList()));
+        assertEquals(List.of(0, 1, 2),
+                ancestors.stream().map(CategoryTreeRow::getDepth).collect(Collectors.toList()));
+    }
+
+    /**
+     * Тестирует подсчет и удаление ветви порциями по материализованному пути.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Ветвь содержит категорию и всех её потомков</li>
+     *   <li>Отсоединенная ветвь сохраняет пути и удаляется порциями начиная с самых глубоких категорий</li>
+     *   <li>Категории вне ветви не удаляются</li>
+     * </ul>
+     */
+    @Test
+    public void subtreeDeletedInBatchesByPath() {
+        Category root = save("Root", null);
+        Category branch = save("Branch", root);
+        Category leaf = save("Leaf", branch);
+        Category sibling = save("Sibling", root);
+        save("Other", null);
+
+        assertEquals(4, categoryRepository.countSubtree(root.getId()));
+
+        categoryRepository.detachById(branch.getId());
+
+        assertEquals(2, categoryRepository.countSubtree(branch.getId()));
+        assertTrue(categoryRepository.findAncestors("Leaf").isEmpty());
+        assertEquals(1, categoryRepository.deleteSubtreeBatch(branch.getId(), 1));
+        assertFalse(categoryRepository.existsById(leaf.getId()));
+        assertTrue(categoryRepository.existsById(branch.getId()));
+        assertEquals(1, categoryRepository.deleteSubtreeBatch(branch.getId(), 1));
+        assertEquals(0, categoryRepository.deleteSubtreeBatch(branch.getId(), 1));
+        assertTrue(categoryRepository.existsById(root.getId()));
+        assertTrue(categoryRepository.existsById(sibling.getId()));
+        assertEquals(3, categoryRepository.count());
+    }
+
+    /**
+     * Загружает дерево в чистом контексте персистентности и строит по нему снимок.
+     *
+     * @param expectedSize ожидаемое число категорий в дереве
+     * @return число подготовленных SQL-запросов, выполненных при загрузке
+     */
+    private long countTreeStatements(int expectedSize) {
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1, categoryRepository.findTree());
+
+        assertEquals(expectedSize, snapshot.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private String pathOf(Category category) {
+        entityManager.clear();
+        return categoryRepository.findById(category.getId()).orElseThrow().getPath();
+    }
+
+    private Category save(String name, Category parent) {
+        Category category = new Category(name);
+        category.setParent(parent);
+        return categoryRepository.saveAndFlush(category);
+    }
+}
@@ -0,0 +1,78 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.repository.CategoryClosureRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-тесты для {@link CategoryClosureServiceImpl}, проверяющие поддержку таблицы замыкания.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Отсутствие обращений к таблице, если она отключена</li>
+ *   <li>Добавление корневой и дочерней категории</li>
+ *   <li>Перестроение после массовой загрузки и чтение пути</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CategoryClosureServiceTest {
+
+    @Mock
+    private CategoryClosureRepository closureRepositoryMock;
+
+    @Mock
+    private EntityManager entityManagerMock;
+
+    /**
+     * Тестирует отключенную таблицу замыкания.
+     * <p>
+     * Ожидаемый результат: ни одна операция не обращается к репозиторию.
+     */
+    @Test
+    public void disabledClosureIsNotMaintained() {
+        CategoryClosureServiceImpl closureService = new CategoryClosureServiceImpl(closureRepositoryMock, entityManagerMock, false);
+
+        closureService.onCategoryAdded(1L, null);
+        closureService.onCategoryAdded(2L, 1L);
+        closureService.onCategoriesImported();
+        closureService.rebuildOnStartup();
+
+        verifyNoInteractions(closureRepositoryMock, entityManagerMock);
+    }
+
+    /**
+     * Тестирует включенную таблицу замыкания.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Корневая категория получает только связь с собой</li>
+     *   <li>Дочерняя категория добавляется как лист под родителя</li>
+     *   <li>После массовой загрузки таблица перестраивается целиком</li>
+     *   <li>Путь к категории читается из таблицы замыкания</li>
+     *   <li>Отложенные вставки Hibernate сбрасываются перед записью связей</li>
+     * </ul>
+     */
+    @Test
+    public void enabledClosureIsMaintained() {
+        CategoryClosureServiceImpl closureService = new CategoryClosureServiceImpl(closureRepositoryMock, entityManagerMock, true);
+
+        closureService.onCategoryAdded(1L, null);
+        closureService.onCategoryAdded(2L, 1L);
+        closureService.onCategoriesImported();
+        closureService.findAncestors("Child");
+
+        verify(entityManagerMock, times(3)).flush();
+        verify(closureRepositoryMock).insertSelfLinks(List.of(1L));
+        verify(closureRepositoryMock).insertLeaf(2L, 1L);
+        verify(closureRepositoryMock).rebuild();
+        verify(closureRepositoryMock).findAncestors("Child");
+        verifyNoMoreInteractions(closureRepositoryMock);
+    }
+}
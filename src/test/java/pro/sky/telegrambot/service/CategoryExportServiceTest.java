@@ -0,0 +1,142 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+import pro.sky.telegrambot.model.ExportArtifact;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-тесты для {@link CategoryExportServiceImpl}, проверяющие хранение и заблаговременное
+ * формирование Excel-документа.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Повторное использование документа неизмененного дерева</li>
+ *   <li>Замену документа после изменения дерева</li>
+ *   <li>Хранение замененного документа до завершения его отправки</li>
+ *   <li>Одно фоновое формирование после серии изменений</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CategoryExportServiceTest {
+
+    private static final CategoryTreeSnapshot VERSION_1 = CategoryTreeSnapshot.of(1L, List.of());
+    private static final CategoryTreeSnapshot VERSION_2 = CategoryTreeSnapshot.of(2L, List.of());
+
+    @Mock
+    private ExcelProcessingService excelProcessingServiceMock;
+
+    @Mock
+    private CategoryTreeSnapshotService snapshotServiceMock;
+
+    private CategoryExportServiceImpl exportServiceTest;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        exportServiceTest = new CategoryExportServiceImpl(excelProcessingServiceMock, snapshotServiceMock, 50);
+        lenient().doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[]{1, 2, 3});
+            return null;
+        }).when(excelProcessingServiceMock).writeCategoriesExcel(any());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        exportServiceTest.shutdown();
+    }
+
+    /**
+     * Тестирует выдачу документа для неизмененного и измененного дерева.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Документ формируется один раз для одной версии дерева</li>
+     *   <li>Идентификатор файла Telegram сохраняется вместе с документом</li>
+     *   <li>После изменения дерева документ формируется заново, а прежний файл удаляется</li>
+     * </ul>
+     */
+    @Test
+    public void acquireArtifactReusesDocumentOfSameVersion() throws IOException {
+        when(snapshotServiceMock.getSnapshot()).thenReturn(VERSION_1, VERSION_1, VERSION_2);
+
+        Path first;
+        try (CategoryExportService.Lease lease = exportServiceTest.acquireArtifact()) {
+            first = lease.artifact().file();
+            assertNull(lease.artifact().fileId());
+            lease.rememberFileId("file-1");
+        }
+        try (CategoryExportService.Lease lease = exportServiceTest.acquireArtifact()) {
+            assertEquals(new ExportArtifact(1L, first, "file-1"), lease.artifact());
+        }
+        try (CategoryExportService.Lease lease = exportServiceTest.acquireArtifact()) {
+            assertEquals(2L, lease.artifact().version());
+            assertNull(lease.artifact().fileId());
+            assertTrue(Files.exists(lease.artifact().file()));
+        }
+
+        assertFalse(Files.exists(first));
+        verify(excelProcessingServiceMock, times(2)).writeCategoriesExcel(any());
+    }
+
+    /**
+     * Тестирует замену документа, пока прежний документ еще отправляется.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Открытая аренда не мешает сформировать и выдать документ новой версии</li>
+     *   <li>Файл прежнего документа удаляется только после закрытия его аренды</li>
+     * </ul>
+     */
+    @Test
+    public void supersededDocumentKeptUntilLeaseClosed() throws IOException {
+        when(snapshotServiceMock.getSnapshot()).thenReturn(VERSION_1, VERSION_2);
+
+        CategoryExportService.Lease sending = exportServiceTest.acquireArtifact();
+        Path first = sending.artifact().file();
+        try (CategoryExportService.Lease lease = exportServiceTest.acquireArtifact()) {
+            assertEquals(2L, lease.artifact().version());
+        }
+        assertTrue(Files.exists(first));
+
+        sending.rememberFileId("file-1");
+        sending.close();
+        assertFalse(Files.exists(first));
+    }
+
+    /**
+     * Тестирует фоновое формирование документа после серии изменений дерева.
+     * <p>
+     * Ожидаемый результат: документ формируется один раз, и следующая выгрузка его не формирует.
+     */
+    @Test
+    public void snapshotUpdatesAreDebounced() throws IOException {
+        when(snapshotServiceMock.getSnapshot()).thenReturn(VERSION_1);
+        CategoryTreeSnapshotUpdatedEvent event = new CategoryTreeSnapshotUpdatedEvent(null, VERSION_1, Set.of());
+
+        for (int i = 0; i < 5; i++) {
+            exportServiceTest.onSnapshotUpdated(event);
+        }
+
+        verify(excelProcessingServiceMock, timeout(2000)).writeCategoriesExcel(any());
+        try (CategoryExportService.Lease lease = exportServiceTest.acquireArtifact()) {
+            assertEquals(1L, lease.artifact().version());
+        }
+        verify(excelProcessingServiceMock, times(1)).writeCategoriesExcel(any());
+    }
+}
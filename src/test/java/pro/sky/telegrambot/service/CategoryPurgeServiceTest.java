@@ -0,0 +1,85 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.repository.CategoryRepository;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-тесты для {@link CategoryPurgeServiceImpl}, проверяющие фоновое удаление больших ветвей.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Выбор фонового удаления по порогу размера ветви</li>
+ *   <li>Удаление ветви порциями ограниченного размера, начиная с самых глубоких категорий</li>
+ *   <li>Прерывание удаления при ошибке базы данных</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CategoryPurgeServiceTest {
+
+    @Mock
+    private CategoryRepository categoryRepositoryMock;
+
+    private CategoryPurgeServiceImpl purgeServiceTest;
+
+    @BeforeEach
+    public void setUp() {
+        purgeServiceTest = new CategoryPurgeServiceImpl(categoryRepositoryMock, 100, 10);
+    }
+
+    /**
+     * Тестирует выбор фонового удаления по порогу размера ветви.
+     */
+    @Test
+    public void requiresBackgroundPurgeFromThreshold() {
+        assertFalse(purgeServiceTest.requiresBackgroundPurge(99));
+        assertTrue(purgeServiceTest.requiresBackgroundPurge(100));
+    }
+
+    /**
+     * Тестирует удаление ветви порциями.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Однократный подсчет категорий ветви для сообщений о прогрессе</li>
+     *   <li>Удаление порциями заданного размера, пока ветвь не будет удалена полностью</li>
+     * </ul>
+     */
+    @Test
+    public void purgeDeletesInBatches() {
+        when(categoryRepositoryMock.countSubtree(1L)).thenReturn(25L);
+        when(categoryRepositoryMock.deleteSubtreeBatch(1L, 10)).thenReturn(10, 10, 5, 0);
+
+        purgeServiceTest.purge(1L, "Test");
+
+        InOrder inOrder = inOrder(categoryRepositoryMock);
+        inOrder.verify(categoryRepositoryMock).countSubtree(1L);
+        inOrder.verify(categoryRepositoryMock, times(4)).deleteSubtreeBatch(1L, 10);
+        verifyNoMoreInteractions(categoryRepositoryMock);
+    }
+
+    /**
+     * Тестирует прерывание удаления при ошибке базы данных.
+     * <p>
+     * Ожидаемый результат: исключение не выходит из фонового потока, оставшиеся порции не удаляются.
+     */
+    @Test
+    public void purgeStopsOnError() {
+        when(categoryRepositoryMock.countSubtree(1L)).thenReturn(25L);
+        when(categoryRepositoryMock.deleteSubtreeBatch(1L, 10))
+                .thenReturn(10)
+                .thenThrow(new IllegalStateException("Ошибка"));
+
+        purgeServiceTest.purge(1L, "Test");
+
+        verify(categoryRepositoryMock, times(2)).deleteSubtreeBatch(1L, 10);
+    }
+}
@@ -5,11 +5,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import pro.sky.telegrambot.event.CategorySubtreeDetachedEvent;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
 import pro.sky.telegrambot.exception.CategoryExistsException;
 import pro.sky.telegrambot.exception.CategoryNotFoundException;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
 import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryRemoval;
+import pro.sky.telegrambot.model.CategoryTreePage;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
 import pro.sky.telegrambot.repository.CategoryRepository;
 
 import java.util.Collections;
@@ -18,7 +25,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static pro.sky.telegrambot.model.CategoryTreeRows.row;
 
 /**
  * Unit-тесты для {@link CategoryServiceImpl}, проверяющие логику работы с категориями.
@@ -44,6 +54,21 @@ public class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepositoryMock;
 
+    @Mock
+    private CategoryTreeSnapshotService snapshotServiceMock;
+
+    @Spy
+    private CategoryTreeRenderer treeRenderer = new CategoryTreeRenderer();
+
+    @Mock
+    private CategoryPurgeService purgeServiceMock;
+
+    @Mock
+    private CategoryClosureService closureServiceMock;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisherMock;
+
     @InjectMocks
     private CategoryServiceImpl categoryServiceTest;
 
@@ -55,6 +80,7 @@ public class CategoryServiceTest {
      *   <li>Проверку существования категории</li>
      *   <li>Сохранение категории с правильными параметрами</li>
      *   <li>Отсутствие родителя у корневой категории</li>
+     *   <li>Регистрацию категории в таблице замыкания</li>
      * </ul>
      */
     @Test
@@ -62,6 +88,11 @@ public class CategoryServiceTest {
         String nameCategory = "Test";
 
         when(categoryRepositoryMock.existsByName(nameCategory)).thenReturn(false);
+        when(categoryRepositoryMock.save(any(Category.class))).thenAnswer(invocation -> {
+            Category category = invocation.getArgument(0);
+            category.setId(7L);
+            return category;
+        });
 
         categoryServiceTest.addRootCategory(nameCategory);
 
@@ -72,6 +103,8 @@ public class CategoryServiceTest {
         Category saved = captor.getValue();
         assertEquals(nameCategory, saved.getName());
         assertNull(saved.getParent());
+        verify(closureServiceMock).onCategoryAdded(7L, null);
+        verify(eventPublisherMock).publishEvent(any(CategoryTreeChangedEvent.class));
     }
 
     /**
@@ -130,6 +163,7 @@ public class CategoryServiceTest {
         assertEquals(childName, savedChild.getName());
         assertNotNull(savedChild.getParent());
         assertEquals(parentName, savedChild.getParent().getName());
+        verify(eventPublisherMock).publishEvent(any(CategoryTreeChangedEvent.class));
     }
 
     /**
@@ -195,30 +229,86 @@ public class CategoryServiceTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Поиск категории по имени</li>
-     *   <li>Корректное удаление категории</li>
+     *   <li>Удаление поддерева одним запросом без загрузки сущностей</li>
+     *   <li>Возврат количества удаленных категорий</li>
      * </ul>
      */
     @Test
     public void removeExistingCategory() {
         String nameCategory = "Test";
 
-        Category category = new Category(nameCategory);
+        when(snapshotServiceMock.getSnapshot()).thenReturn(CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, nameCategory, null, 0),
+                row(2L, "Child1", 1L, 1),
+                row(3L, "Child2", 1L, 1))));
+        when(purgeServiceMock.requiresBackgroundPurge(3)).thenReturn(false);
+        when(categoryRepositoryMock.deleteSubtreeByName(nameCategory)).thenReturn(3);
 
-        when(categoryRepositoryMock.findByName(nameCategory)).
-                thenReturn(Optional.of(category));
+        assertEquals(new CategoryRemoval(3, false), categoryServiceTest.removeCategory(nameCategory));
 
-        categoryServiceTest.removeCategory(nameCategory);
+        verify(categoryRepositoryMock).deleteSubtreeByName(nameCategory);
+        verify(categoryRepositoryMock, never()).findByName(any());
+        verify(categoryRepositoryMock, never()).delete(any());
+        verify(eventPublisherMock).publishEvent(any(CategoryTreeChangedEvent.class));
+    }
 
-        ArgumentCaptor<Category> captor = ArgumentCaptor.forClass(Category.class);
-        verify(categoryRepositoryMock).delete(captor.capture());
-        verify(categoryRepositoryMock).findByName(nameCategory);
+    /**
+     * Тестирует удаление ветви, превышающей порог фонового удаления.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Отсоединение корня ветви вместо удаления</li>
+     *   <li>Публикацию событий изменения дерева и отсоединения ветви</li>
+     *   <li>Возврат оценки размера ветви с признаком фонового удаления</li>
+     * </ul>
+     */
+    @Test
+    public void removeLargeCategoryDetachesSubtree() {
+        String nameCategory = "Test";
+        Category category = new Category(nameCategory);
+        category.setId(1L);
+
+        when(snapshotServiceMock.getSnapshot()).thenReturn(CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, nameCategory, null, 0),
+                row(2L, "Child", 1L, 1))));
+        when(purgeServiceMock.requiresBackgroundPurge(2)).thenReturn(true);
+        when(categoryRepositoryMock.findByName(nameCategory)).thenReturn(Optional.of(category));
+
+        assertEquals(new CategoryRemoval(2, true), categoryServiceTest.removeCategory(nameCategory));
+
+        verify(categoryRepositoryMock).detachById(1L);
+        verify(categoryRepositoryMock, never()).deleteSubtreeByName(any());
+        verify(eventPublisherMock).publishEvent(any(CategoryTreeChangedEvent.class));
+        ArgumentCaptor<CategorySubtreeDetachedEvent> captor =
+                ArgumentCaptor.forClass(CategorySubtreeDetachedEvent.class);
+        verify(eventPublisherMock, times(2)).publishEvent(captor.capture());
+        CategorySubtreeDetachedEvent detached = captor.getAllValues().get(1);
+        assertEquals(1L, detached.getRootId());
+        assertEquals(nameCategory, detached.getCategoryName());
+    }
 
-        Category remove = captor.getValue();
-        assertEquals(nameCategory, remove.getName());
+    /**
+     * Тестирует оценку размера ветви по таблице замыкания, пока снимок дерева не загружен.
+     * <p>
+     * Ожидаемый результат: размер ветви подсчитывается запросом к таблице замыкания,
+     * а всё дерево для этого не загружается.
+     */
+    @Test
+    public void removeLargeCategoryCountedByClosure() {
+        String nameCategory = "Test";
+        Category category = new Category(nameCategory);
+        category.setId(1L);
+
+        when(snapshotServiceMock.findLoadedSnapshot()).thenReturn(Optional.empty());
+        when(closureServiceMock.isEnabled()).thenReturn(true);
+        when(closureServiceMock.countSubtree(nameCategory)).thenReturn(20_000);
+        when(purgeServiceMock.requiresBackgroundPurge(20_000)).thenReturn(true);
+        when(categoryRepositoryMock.findByName(nameCategory)).thenReturn(Optional.of(category));
 
-        verify(categoryRepositoryMock).findByName(nameCategory);
-        verify(categoryRepositoryMock).delete(category);
+        assertEquals(new CategoryRemoval(20_000, true), categoryServiceTest.removeCategory(nameCategory));
+
+        verify(categoryRepositoryMock).detachById(1L);
+        verify(snapshotServiceMock, never()).getSnapshot();
     }
 
     /**
@@ -236,15 +326,16 @@ public class CategoryServiceTest {
         String nameCategory = "Test";
         String messageException = "Категория \"Test\" не найдена";
 
-        when(categoryRepositoryMock.findByName(nameCategory)).
-                thenReturn(Optional.empty());
+        when(snapshotServiceMock.getSnapshot()).thenReturn(CategoryTreeSnapshot.of(1L, Collections.emptyList()));
+        when(categoryRepositoryMock.deleteSubtreeByName(nameCategory)).thenReturn(0);
 
         Exception exception = assertThrows(CategoryNotFoundException.class, () -> {
             categoryServiceTest.removeCategory(nameCategory);
         });
 
         verify(categoryRepositoryMock, never()).delete(any());
-        verify(categoryRepositoryMock).findByName(nameCategory);
+        verify(categoryRepositoryMock).deleteSubtreeByName(nameCategory);
+        verify(eventPublisherMock, never()).publishEvent(any());
         assertEquals(messageException, exception.getMessage());
     }
 
@@ -253,33 +344,58 @@ public class CategoryServiceTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Поиск корневых категорий</li>
+     *   <li>Построение дерева по снимку в памяти</li>
      *   <li>Формирование корректного строкового представления</li>
      *   <li>Иерархию родитель-потомок</li>
+     *   <li>Отсутствие обращений к базе данных</li>
      * </ul>
      */
     @Test
     public void viewNotEmptyTree() {
-        Category parent = new Category("Parent");
-        Category child1 = new Category("Child1");
-        Category child2 = new Category("Child2");
+        when(snapshotServiceMock.getSnapshot()).thenReturn(CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Parent", null, 0),
+                row(2L, "Child1", 1L, 1),
+                row(3L, "Child2", 1L, 1))));
 
-        child1.setParent(parent);
-        child2.setParent(parent);
-        parent.getChildren().addAll(List.of(child1, child2));
-
-        when(categoryRepositoryMock.findAllByParentIsNull()).thenReturn(List.of(parent));
-
-        String result = categoryServiceTest.viewTree();
+        CategoryTreePage result = categoryServiceTest.viewTree(1);
 
         String expected = """
-                Дерево категорий:
                 - Parent
                   - Child1
                   - Child2
                 """;
 
-        assertEquals(expected, result);
+        assertEquals(new CategoryTreePage(1, expected, false), result);
+        verifyNoInteractions(categoryRepositoryMock);
+    }
+
+    /**
+     * Тестирует кеширование страниц дерева.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Повторный просмотр неизменного дерева возвращает закешированную страницу</li>
+     *   <li>Новая версия дерева приводит к построению новой страницы</li>
+     * </ul>
+     */
+    @Test
+    public void viewTreeCachedUntilVersionChanges() {
+        CategoryTreeSnapshot first = CategoryTreeSnapshot.of(1L, List.of(row(1L, "Parent", null, 0)));
+        CategoryTreeSnapshot second = CategoryTreeSnapshot.of(2L, List.of(
+                row(1L, "Parent", null, 0),
+                row(2L, "Child", 1L, 1)));
+        when(snapshotServiceMock.getSnapshot()).thenReturn(first, first, second);
+
+        CategoryTreePage initial = categoryServiceTest.viewTree(1);
+        CategoryTreePage repeated = categoryServiceTest.viewTree(1);
+        CategoryTreePage changed = categoryServiceTest.viewTree(1);
+
+        assertSame(initial, repeated);
+        verify(treeRenderer, times(2)).renderPage(any(), eq(1), anyInt());
+        assertEquals("""
+                - Parent
+                  - Child
+                """, changed.text());
     }
 
     /**
@@ -295,14 +411,118 @@ public class CategoryServiceTest {
     public void viewNotFoundTree() {
         String messageException = "Дерево категорий пусто.";
 
-        when(categoryRepositoryMock.findAllByParentIsNull()).thenReturn(Collections.emptyList());
+        when(snapshotServiceMock.getSnapshot())
+                .thenReturn(CategoryTreeSnapshot.of(1L, Collections.emptyList()));
 
         Exception exception = assertThrows(CategoryTreeIsEmptyException.class, () -> {
-            categoryServiceTest.viewTree();
+            categoryServiceTest.viewTree(1);
         });
 
-        verify(categoryRepositoryMock).findAllByParentIsNull();
+        verify(snapshotServiceMock).getSnapshot();
         assertEquals(messageException, exception.getMessage());
     }
-}
 
+    /**
+     * Тестирует вывод поддерева категории с ограничением глубины.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Вывод только категорий ограниченной области</li>
+     *   <li>Выброс {@link CategoryNotFoundException} для несуществующей категории</li>
+     *   <li>Отсутствие обращений к базе данных</li>
+     * </ul>
+     */
+    @Test
+    public void viewSubtreeWithDepth() {
+        when(snapshotServiceMock.getSnapshot()).thenReturn(CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Parent", null, 0),
+                row(2L, "Child", 1L, 1),
+                row(3L, "Grandchild", 2L, 2),
+                row(4L, "Other", null, 0))));
+
+        assertEquals(new CategoryTreePage(1, "- Child\n", false),
+                categoryServiceTest.viewSubtree("Child", 0, 1));
+        assertEquals("Категория \"Missing\" не найдена", assertThrows(CategoryNotFoundException.class,
+                () -> categoryServiceTest.viewSubtree("Missing", 1, 1)).getMessage());
+        verifyNoInteractions(categoryRepositoryMock);
+    }
+
+    /**
+     * Тестирует вывод поддерева по таблице замыкания, пока снимок дерева не загружен.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Вывод поддерева, загруженного из таблицы замыкания</li>
+     *   <li>Выброс {@link CategoryNotFoundException}, если категория не найдена</li>
+     *   <li>Отсутствие загрузки всего дерева</li>
+     * </ul>
+     */
+    @Test
+    public void viewSubtreeUsesClosureWhenSnapshotNotLoaded() {
+        when(snapshotServiceMock.findLoadedSnapshot()).thenReturn(Optional.empty());
+        when(closureServiceMock.isEnabled()).thenReturn(true);
+        when(closureServiceMock.findSubtree("Child", CategoryTreeRenderer.UNLIMITED_DEPTH))
+                .thenReturn(List.of(row(2L, "Child", null, 0), row(3L, "Grandchild", 2L, 1)));
+        when(closureServiceMock.findSubtree("Missing", 1)).thenReturn(List.of());
+
+        assertEquals(new CategoryTreePage(1, "- Child\n  - Grandchild\n", false),
+                categoryServiceTest.viewSubtree("Child", CategoryTreeRenderer.UNLIMITED_DEPTH, 1));
+        assertThrows(CategoryNotFoundException.class, () -> categoryServiceTest.viewSubtree("Missing", 1, 1));
+        verify(snapshotServiceMock, never()).getSnapshot();
+        verifyNoInteractions(categoryRepositoryMock);
+    }
+
+    /**
+     * Тестирует построение пути к категории по загруженному снимку.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Порядок категорий от корня до указанной</li>
+     *   <li>Выброс {@link CategoryNotFoundException} для несуществующей категории</li>
+     *   <li>Отсутствие обращений к базе данных</li>
+     * </ul>
+     */
+    @Test
+    public void findPathUsesLoadedSnapshot() {
+        when(snapshotServiceMock.findLoadedSnapshot()).thenReturn(Optional.of(CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Parent", null, 0),
+                row(2L, "Child", 1L, 1),
+                row(3L, "Grandchild", 2L, 2)))));
+
+        assertEquals(List.of("Parent", "Child", "Grandchild"), categoryServiceTest.findPath("Grandchild"));
+        assertEquals("Категория \"Missing\" не найдена", assertThrows(CategoryNotFoundException.class,
+                () -> categoryServiceTest.findPath("Missing")).getMessage());
+        verifyNoInteractions(categoryRepositoryMock);
+    }
+
+    /**
+     * Тестирует построение пути к категории, пока снимок дерева не загружен.
+     * <p>
+     * Ожидаемый результат: путь загружается одним запросом к репозиторию, снимок не загружается.
+     */
+    @Test
+    public void findPathFallsBackToRepository() {
+        when(snapshotServiceMock.findLoadedSnapshot()).thenReturn(Optional.empty());
+        when(categoryRepositoryMock.findAncestors("Child"))
+                .thenReturn(List.of(row(1L, "Parent", null, 0), row(2L, "Child", 1L, 1)));
+
+        assertEquals(List.of("Parent", "Child"), categoryServiceTest.findPath("Child"));
+        verify(snapshotServiceMock, never()).getSnapshot();
+    }
+
+    /**
+     * Тестирует построение пути к категории по таблице замыкания, пока снимок дерева не загружен.
+     * <p>
+     * Ожидаемый результат: путь читается из таблицы замыкания, запрос по материализованному пути не выполняется.
+     */
+    @Test
+    public void findPathUsesClosureWhenEnabled() {
+        when(snapshotServiceMock.findLoadedSnapshot()).thenReturn(Optional.empty());
+        when(closureServiceMock.isEnabled()).thenReturn(true);
+        when(closureServiceMock.findAncestors("Child"))
+                .thenReturn(List.of(row(1L, "Parent", null, 0), row(2L, "Child", 1L, 1)));
+
+        assertEquals(List.of("Parent", "Child"), categoryServiceTest.findPath("Child"));
+        verify(categoryRepositoryMock, never()).findAncestors(any());
+    }
+}
@@ -0,0 +1,279 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.Test;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.exception.TreePageNotFoundException;
+import pro.sky.telegrambot.model.CategoryTreePage;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+import pro.sky.telegrambot.util.Rope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static pro.sky.telegrambot.model.CategoryTreeRows.binaryTree;
+import static pro.sky.telegrambot.model.CategoryTreeRows.row;
+
+/**
+ * Unit-тесты для {@link CategoryTreeRenderer}, проверяющие построение дерева с запоминанием фрагментов.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Построение текстового представления дерева</li>
+ *   <li>Запоминание фрагментов только для категорий с дочерними категориями</li>
+ *   <li>Сброс фрагментов только у измененной ветви при добавлении категории</li>
+ *   <li>Удаление и перемещение категорий</li>
+ *   <li>Полный сброс при пропуске версии</li>
+ *   <li>Постраничное построение с разбиением по границам строк</li>
+ *   <li>Обход только узлов до конца запрошенной страницы</li>
+ *   <li>Построение поддерева с ограничением глубины</li>
+ * </ul>
+ */
+public class CategoryTreeRendererTest {
+
+    private final CategoryTreeRenderer renderer = new CategoryTreeRenderer();
+
+    private final CategoryTreeSnapshot initial = CategoryTreeSnapshot.of(1L, List.of(
+            row(1L, "Электроника", null, 0),
+            row(2L, "Книги", null, 0),
+            row(3L, "Смартфоны", 1L, 1),
+            row(4L, "Проза", 2L, 1)));
+
+    /**
+     * Тестирует построение текстового представления дерева.
+     * <p>
+     * Проверяет, что фрагменты запоминаются только для категорий с дочерними категориями.
+     */
+    @Test
+    public void renderTree() {
+        assertEquals("""
+                - Электроника
+                  - Смартфоны
+                - Книги
+                  - Проза
+                """, renderer.render(initial).toString());
+        assertEquals("- Книги\n  - Проза\n", renderer.cachedFragment(2L).toString());
+        assertNull(renderer.cachedFragment(4L));
+    }
+
+    /**
+     * Тестирует добавление дочерней категории.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Корректность текста после изменения</li>
+     *   <li>Переиспользование фрагмента незатронутой ветви без перестроения</li>
+     *   <li>Сброс фрагментов измененной категории и её предков</li>
+     * </ul>
+     */
+    @Test
+    public void addChildInvalidatesOnlyAncestors() {
+        renderer.render(initial);
+        Rope books = renderer.cachedFragment(2L);
+        assertNull(renderer.cachedFragment(3L));
+
+        CategoryTreeSnapshot changed = CategoryTreeSnapshot.of(2L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Книги", null, 0),
+                row(3L, "Смартфоны", 1L, 1),
+                row(4L, "Проза", 2L, 1),
+                row(5L, "Android", 3L, 2)));
+        renderer.onSnapshotUpdated(new CategoryTreeSnapshotUpdatedEvent(initial, changed, Set.of("Android")));
+
+        assertNull(renderer.cachedFragment(1L));
+        assertNull(renderer.cachedFragment(3L));
+        assertSame(books, renderer.cachedFragment(2L));
+
+        assertEquals("""
+                - Электроника
+                  - Смартфоны
+                    - Android
+                - Книги
+                  - Проза
+                """, renderer.render(changed).toString());
+        assertSame(books, renderer.cachedFragment(2L));
+        assertEquals("  - Смартфоны\n    - Android\n", renderer.cachedFragment(3L).toString());
+    }
+
+    /**
+     * Тестирует удаление категории и перемещение категории к другому родителю.
+     * <p>
+     * Проверяет, что отступы перемещенного поддерева перестраиваются под новый уровень вложенности.
+     */
+    @Test
+    public void removeAndMoveCategories() {
+        renderer.render(initial);
+
+        CategoryTreeSnapshot moved = CategoryTreeSnapshot.of(2L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Книги", null, 0),
+                row(4L, "Проза", 2L, 1),
+                row(3L, "Смартфоны", 4L, 2)));
+        renderer.onSnapshotUpdated(new CategoryTreeSnapshotUpdatedEvent(initial, moved, Set.of("Смартфоны")));
+        assertEquals("""
+                - Электроника
+                - Книги
+                  - Проза
+                    - Смартфоны
+                """, renderer.render(moved).toString());
+
+        CategoryTreeSnapshot removed = CategoryTreeSnapshot.of(3L, List.of(
+                row(1L, "Электроника", null, 0)));
+        renderer.onSnapshotUpdated(new CategoryTreeSnapshotUpdatedEvent(moved, removed, Set.of("Книги")));
+        assertNull(renderer.cachedFragment(3L));
+        assertNull(renderer.cachedFragment(4L));
+        assertEquals("- Электроника\n", renderer.render(removed).toString());
+    }
+
+    /**
+     * Тестирует сброс всех фрагментов, если между снимками пропущена версия.
+     */
+    @Test
+    public void versionGapInvalidatesEverything() {
+        renderer.render(initial);
+
+        CategoryTreeSnapshot changed = CategoryTreeSnapshot.of(3L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Книги", null, 0)));
+        renderer.onSnapshotUpdated(new CategoryTreeSnapshotUpdatedEvent(initial, changed, Set.of("Смартфоны")));
+
+        assertNull(renderer.cachedFragment(2L));
+        assertEquals("- Электроника\n- Книги\n", renderer.render(changed).toString());
+    }
+
+    /**
+     * Тестирует постраничное построение большого дерева по запомненным фрагментам.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Длина каждой страницы не превышает лимит</li>
+     *   <li>Страницы заканчиваются на границе строки</li>
+     *   <li>Склеенные страницы совпадают с полным текстом дерева</li>
+     *   <li>Повторное построение по запомненным фрагментам не меняет разбиение на страницы</li>
+     * </ul>
+     */
+    @Test
+    public void renderPagesSplitOnLineBoundaries() {
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, binaryTree(2000));
+        List<CategoryTreePage> coldPages = renderAllPages(snapshot, 500);
+        String full = renderer.render(snapshot).toString();
+        List<CategoryTreePage> warmPages = renderAllPages(snapshot, 500);
+
+        StringBuilder joined = new StringBuilder();
+        for (CategoryTreePage page : coldPages) {
+            assertTrue(page.text().length() <= 500);
+            assertTrue(page.text().endsWith("\n"));
+            joined.append(page.text());
+        }
+        assertEquals(full, joined.toString());
+        assertEquals(coldPages, warmPages);
+        assertFalse(coldPages.get(coldPages.size() - 1).hasNext());
+    }
+
+    /**
+     * Тестирует построение первой страницы большого дерева без запомненных фрагментов.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Текст страницы совпадает с началом полного текста дерева</li>
+     *   <li>Запоминаются только фрагменты поддеревьев, пройденных до конца страницы</li>
+     *   <li>Фрагменты поддеревьев за пределами страницы не строятся, то есть их узлы не обходятся</li>
+     * </ul>
+     */
+    @Test
+    public void renderPageVisitsOnlyNodesUpToPage() {
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, binaryTree(100_000));
+        String full = new CategoryTreeRenderer().render(snapshot).toString();
+
+        CategoryTreePage page = renderer.renderPage(snapshot, 1, 4000);
+
+        assertTrue(page.hasNext());
+        assertTrue(full.startsWith(page.text()));
+        assertTrue(renderer.cachedFragmentCount() > 0);
+        assertTrue(renderer.cachedFragmentCount() < 100);
+        assertNull(renderer.cachedFragment(1L));
+        assertNull(renderer.cachedFragment(3L));
+    }
+
+    /**
+     * Тестирует построение страницы после изменения дерева.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Построение страницы запоминает фрагменты поддеревьев</li>
+     *   <li>После изменения перестраиваются только фрагменты затронутой ветви</li>
+     * </ul>
+     */
+    @Test
+    public void renderPageReusesFragments() {
+        renderer.renderPage(initial, 1, 4000);
+        Rope books = renderer.cachedFragment(2L);
+        assertNotNull(books);
+
+        CategoryTreeSnapshot changed = CategoryTreeSnapshot.of(2L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Книги", null, 0),
+                row(3L, "Смартфоны", 1L, 1),
+                row(4L, "Проза", 2L, 1),
+                row(5L, "Android", 3L, 2)));
+        renderer.onSnapshotUpdated(new CategoryTreeSnapshotUpdatedEvent(initial, changed, Set.of("Android")));
+
+        assertEquals(renderer.render(changed).toString(), renderer.renderPage(changed, 1, 4000).text());
+        assertSame(books, renderer.cachedFragment(2L));
+        assertNotNull(renderer.cachedFragment(3L));
+    }
+
+    /**
+     * Тестирует запрос страницы за пределами дерева.
+     * <p>
+     * Ожидаемый результат: выбрасывается {@link TreePageNotFoundException}.
+     */
+    @Test
+    public void renderPageOutOfRange() {
+        assertEquals(new CategoryTreePage(1, renderer.render(initial).toString(), false),
+                renderer.renderPage(initial, 1, 4000));
+        assertThrows(TreePageNotFoundException.class, () -> renderer.renderPage(initial, 2, 4000));
+        assertThrows(TreePageNotFoundException.class, () -> renderer.renderPage(initial, 0, 4000));
+    }
+
+    /**
+     * Тестирует построение поддерева категории с ограничением глубины.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Начальная категория выводится без отступа</li>
+     *   <li>Категории глубже ограничения не выводятся, даже если фрагменты дерева запомнены</li>
+     * </ul>
+     */
+    @Test
+    public void renderSubtreeWithDepthLimit() {
+        CategoryTreeSnapshot snapshot = CategoryTreeSnapshot.of(1L, List.of(
+                row(1L, "Электроника", null, 0),
+                row(2L, "Смартфоны", 1L, 1),
+                row(3L, "Android", 2L, 2),
+                row(4L, "Ноутбуки", 1L, 1)));
+        renderer.render(snapshot);
+
+        assertEquals("""
+                - Электроника
+                  - Смартфоны
+                  - Ноутбуки
+                """, renderer.renderSubtreePage(snapshot, 0, 1, 1, 4000).text());
+        assertEquals("""
+                - Смартфоны
+                  - Android
+                """, renderer.renderSubtreePage(snapshot, snapshot.indexOf("Смартфоны"),
+                CategoryTreeRenderer.UNLIMITED_DEPTH, 1, 4000).text());
+    }
+
+    private List<CategoryTreePage> renderAllPages(CategoryTreeSnapshot snapshot, int pageLength) {
+        List<CategoryTreePage> pages = new ArrayList<>();
+        CategoryTreePage page;
+        do {
+            page = renderer.renderPage(snapshot, pages.size() + 1, pageLength);
+            pages.add(page);
+        } while (page.hasNext());
+        return pages;
+    }
+}
@@ -0,0 +1,97 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
+import pro.sky.telegrambot.event.CategoryTreeSnapshotUpdatedEvent;
+import pro.sky.telegrambot.model.CategoryTreeSnapshot;
+import pro.sky.telegrambot.repository.CategoryRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static pro.sky.telegrambot.model.CategoryTreeRows.binaryTree;
+import static pro.sky.telegrambot.model.CategoryTreeRows.row;
+
+/**
+ * Unit-тесты для {@link CategoryTreeSnapshotServiceImpl}, проверяющие загрузку и публикацию снимков дерева.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Загрузку дерева одним запросом независимо от его размера</li>
+ *   <li>Повторное чтение снимка без обращений к базе данных</li>
+ *   <li>Увеличение версии и замену снимка после изменения дерева</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+public class CategoryTreeSnapshotServiceTest {
+
+    @Mock
+    private CategoryRepository categoryRepositoryMock;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisherMock;
+
+    @InjectMocks
+    private CategoryTreeSnapshotServiceImpl snapshotServiceTest;
+
+    /**
+     * Тестирует количество обращений к базе данных при загрузке снимка.
+     * <p>
+     * Проверяет, что для маленького и для большого дерева выполняется ровно один запрос,
+     * а повторные чтения обслуживаются из памяти.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 100, 20_000})
+    public void getSnapshotUsesConstantNumberOfQueries(int size) {
+        when(categoryRepositoryMock.findTree()).thenReturn(binaryTree(size));
+
+        CategoryTreeSnapshot first = snapshotServiceTest.getSnapshot();
+        CategoryTreeSnapshot second = snapshotServiceTest.getSnapshot();
+
+        verify(categoryRepositoryMock, times(1)).findTree();
+        verifyNoMoreInteractions(categoryRepositoryMock);
+        assertSame(first, second);
+        assertEquals(size, first.size());
+    }
+
+    /**
+     * Тестирует обновление снимка после изменения дерева.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Увеличение версии снимка</li>
+     *   <li>Публикацию нового содержимого дерева</li>
+     *   <li>Уведомление о замене снимка с названиями измененных категорий</li>
+     * </ul>
+     */
+    @Test
+    public void onCategoryTreeChangedPublishesNewVersion() {
+        when(categoryRepositoryMock.findTree())
+                .thenReturn(List.of(row(1L, "Parent", null, 0)))
+                .thenReturn(List.of(row(1L, "Parent", null, 0), row(2L, "Child", 1L, 1)));
+
+        CategoryTreeSnapshot before = snapshotServiceTest.getSnapshot();
+        snapshotServiceTest.onCategoryTreeChanged(new CategoryTreeChangedEvent("Child"));
+        CategoryTreeSnapshot after = snapshotServiceTest.getSnapshot();
+
+        assertTrue(after.getVersion() > before.getVersion());
+        ArgumentCaptor<CategoryTreeSnapshotUpdatedEvent> captor =
+                ArgumentCaptor.forClass(CategoryTreeSnapshotUpdatedEvent.class);
+        verify(eventPublisherMock, times(2)).publishEvent(captor.capture());
+        assertSame(before, captor.getValue().getPrevious());
+        assertSame(after, captor.getValue().getCurrent());
+        assertEquals(Set.of("Child"), captor.getValue().getChangedNames());
+        assertEquals(CategoryTreeSnapshot.NO_NODE, before.indexOf("Child"));
+        assertEquals("Parent", after.name(after.parent(after.indexOf("Child"))));
+    }
+}
@@ -1,10 +1,12 @@
 package pro.sky.telegrambot.service;
 
-import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.CallbackQuery;
 import com.pengrad.telegrambot.model.Chat;
 import com.pengrad.telegrambot.model.Document;
 import com.pengrad.telegrambot.model.Message;
 import com.pengrad.telegrambot.model.Update;
+import com.pengrad.telegrambot.request.AnswerCallbackQuery;
+import com.pengrad.telegrambot.request.EditMessageText;
 import com.pengrad.telegrambot.request.SendMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pro.sky.telegrambot.command.CallbackHandler;
 import pro.sky.telegrambot.command.Command;
 import pro.sky.telegrambot.command.NamesCommand;
 import pro.sky.telegrambot.command.UploadCommand;
@@ -31,14 +34,16 @@ import static org.mockito.Mockito.*;
  *   <li>Обработку обновлений без сообщений</li>
  *   <li>Обработку документов</li>
  *   <li>Обработку текстовых команд</li>
+ *   <li>Проверку кавычек у аргументов с учетом аргументов, разрешенных командой</li>
  *   <li>Обработку обычного текста (не команд)</li>
+ *   <li>Обработку нажатий на кнопки inline-клавиатуры</li>
  * </ul>
  */
 @ExtendWith(MockitoExtension.class)
 public class CommandServiceTest {
 
     @Mock
-    private TelegramBot telegramBotMock;
+    private TelegramSender telegramSenderMock;
 
     @Mock
     private UploadCommand uploadCommandMock;
@@ -46,6 +51,9 @@ public class CommandServiceTest {
     @Mock
     private Command helpCommandMock;
 
+    @Mock
+    private CallbackHandler callbackHandlerMock;
+
     @Mock
     private Update updateMock;
 
@@ -70,11 +78,13 @@ public class CommandServiceTest {
     @BeforeEach
     public void setUp() {
         when(helpCommandMock.getNameCommand()).thenReturn(NamesCommand.HELP);
+        when(callbackHandlerMock.getCallbackPrefix()).thenReturn("browse");
 
         commandServiceTest = new CommandServiceImpl(
-                telegramBotMock,
+                telegramSenderMock,
                 List.of(helpCommandMock),
-                uploadCommandMock
+                uploadCommandMock,
+                List.of(callbackHandlerMock)
         );
     }
 
@@ -83,7 +93,7 @@ public class CommandServiceTest {
      * <p>
      * Проверяет:
      * <ul>
-     *   <li>Отсутствие взаимодействия с TelegramBot</li>
+     *   <li>Отсутствие отправки сообщений</li>
      *   <li>Отсутствие вызовов команд</li>
      * </ul>
      */
@@ -93,7 +103,7 @@ public class CommandServiceTest {
 
         commandServiceTest.processCommand(updateMock);
 
-        verifyNoInteractions(telegramBotMock, uploadCommandMock);
+        verifyNoInteractions(telegramSenderMock, uploadCommandMock);
     }
 
     /**
@@ -143,7 +153,7 @@ public class CommandServiceTest {
      * Проверяет:
      * <ul>
      *   <li>Вызов соответствующей команды (help)</li>
-     *   <li>Отправку ответного сообщения через TelegramBot</li>
+     *   <li>Постановку ответного сообщения в очередь отправки</li>
      *   <li>Передачу правильных параметров команде</li>
      * </ul>
      */
@@ -161,7 +171,46 @@ public class CommandServiceTest {
         commandServiceTest.processCommand(updateMock);
         verify(helpCommandMock).execute(eq(CHAT_ID), eq(List.of("/help")));
 
-        verify(telegramBotMock).execute(eq(expectedResponse));
+        verify(telegramSenderMock).send(eq(expectedResponse));
+    }
+
+    /**
+     * Тестирует аргумент без кавычек у команды, которая его не разрешает.
+     * <p>
+     * Ожидаемый результат: команда не выполняется, пользователю отправляется просьба заключить элемент в кавычки.
+     */
+    @Test
+    public void processingCommandRejectsUnquotedArgument() {
+        when(chatMock.id()).thenReturn(CHAT_ID);
+        when(messageMock.chat()).thenReturn(chatMock);
+        when(messageMock.text()).thenReturn("/help 2024");
+        when(updateMock.message()).thenReturn(messageMock);
+
+        commandServiceTest.processCommand(updateMock);
+
+        verify(helpCommandMock, never()).execute(any(), any());
+        ArgumentCaptor<SendMessage> messageCaptor = ArgumentCaptor.forClass(SendMessage.class);
+        verify(telegramSenderMock).send(messageCaptor.capture());
+        assertEquals("Ошибка: Элемент \"2024\" должен быть заключен в кавычки.\n" +
+                "Пример: /addElement \"2024\"", messageCaptor.getValue().getParameters().get("text"));
+    }
+
+    /**
+     * Тестирует аргумент без кавычек, который разрешает сама команда.
+     * <p>
+     * Ожидаемый результат: аргумент без кавычек передается команде как есть, а остальные - без кавычек.
+     */
+    @Test
+    public void processingCommandPassesArgumentAcceptedByCommand() {
+        when(chatMock.id()).thenReturn(CHAT_ID);
+        when(messageMock.chat()).thenReturn(chatMock);
+        when(messageMock.text()).thenReturn("/help \"Книги\" 2");
+        when(updateMock.message()).thenReturn(messageMock);
+        when(helpCommandMock.acceptsUnquoted("2")).thenReturn(true);
+
+        commandServiceTest.processCommand(updateMock);
+
+        verify(helpCommandMock).execute(eq(CHAT_ID), eq(List.of("/help", "Книги", "2")));
     }
 
     /**
@@ -208,10 +257,42 @@ public class CommandServiceTest {
         commandServiceTest.processCommand(updateMock);
 
         ArgumentCaptor<SendMessage> messageCaptor = ArgumentCaptor.forClass(SendMessage.class);
-        verify(telegramBotMock).execute(messageCaptor.capture());
+        verify(telegramSenderMock).send(messageCaptor.capture());
 
         SendMessage sendMessage = messageCaptor.getValue();
         assertEquals(CHAT_ID, sendMessage.getParameters().get("chat_id"));
         assertEquals(textMessage, sendMessage.getParameters().get("text"));
     }
+
+    /**
+     * Тестирует обработку нажатия на кнопку inline-клавиатуры.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Выбор обработчика по префиксу данных кнопки</li>
+     *   <li>Отправку запроса на редактирование исходного сообщения</li>
+     *   <li>Отправку ответа на нажатие</li>
+     * </ul>
+     */
+    @Test
+    public void processCommandDispatchesCallbackQuery() {
+        CallbackQuery callbackQueryMock = mock(CallbackQuery.class);
+        when(updateMock.callbackQuery()).thenReturn(callbackQueryMock);
+        when(callbackQueryMock.id()).thenReturn("42");
+        when(callbackQueryMock.data()).thenReturn("browse:7:0");
+        when(callbackQueryMock.message()).thenReturn(messageMock);
+        when(messageMock.chat()).thenReturn(chatMock);
+        when(messageMock.messageId()).thenReturn(10);
+        when(chatMock.id()).thenReturn(CHAT_ID);
+        EditMessageText expectedEdit = new EditMessageText(CHAT_ID, 10, "Test");
+        when(callbackHandlerMock.handleCallback(CHAT_ID, 10, "7:0")).thenReturn(expectedEdit);
+
+        commandServiceTest.processCommand(updateMock);
+
+        ArgumentCaptor<AnswerCallbackQuery> captor = ArgumentCaptor.forClass(AnswerCallbackQuery.class);
+        verify(telegramSenderMock, times(2)).send(captor.capture());
+        assertEquals(expectedEdit, captor.getAllValues().get(0));
+        AnswerCallbackQuery answer = captor.getAllValues().get(1);
+        assertEquals("42", answer.getParameters().get("callback_query_id"));
+    }
 }
@@ -0,0 +1,70 @@
+package pro.sky.telegrambot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import pro.sky.telegrambot.event.CategoryTreeChangedEvent;
+import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.repository.CategoryImportRepository;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit-тесты для {@link CopyCategoryImportService}, проверяющие порядок шагов массовой загрузки.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CopyCategoryImportServiceTest {
+
+    @Mock
+    private CategoryImportRepository importRepositoryMock;
+
+    @Mock
+    private CategoryClosureService closureServiceMock;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisherMock;
+
+    @InjectMocks
+    private CopyCategoryImportService importServiceTest;
+
+    /**
+     * Тестирует загрузку категорий через временную таблицу.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Копирование строк до сопоставления названий</li>
+     *   <li>Вставку новых категорий до установки родителей</li>
+     *   <li>Обновление таблицы замыкания и публикацию события с названиями из файла</li>
+     * </ul>
+     */
+    @Test
+    public void importCategoriesThroughStagingTable() {
+        List<Category> categories = List.of(new Category("Parent"), new Category("Child"));
+        when(importRepositoryMock.copyRows(categories)).thenReturn(2L);
+        when(importRepositoryMock.resolveTargets(Category.ID_ALLOCATION_SIZE)).thenReturn(2);
+        when(importRepositoryMock.findImportedNames()).thenReturn(List.of("Parent", "Child"));
+
+        importServiceTest.importCategories(categories);
+
+        InOrder order = inOrder(importRepositoryMock, closureServiceMock, eventPublisherMock);
+        order.verify(importRepositoryMock).createStagingTable();
+        order.verify(importRepositoryMock).copyRows(categories);
+        order.verify(importRepositoryMock).resolveTargets(Category.ID_ALLOCATION_SIZE);
+        order.verify(importRepositoryMock).insertCreated();
+        order.verify(importRepositoryMock).updateParents();
+        order.verify(closureServiceMock).onCategoriesImported();
+        ArgumentCaptor<CategoryTreeChangedEvent> captor = ArgumentCaptor.forClass(CategoryTreeChangedEvent.class);
+        order.verify(eventPublisherMock).publishEvent(captor.capture());
+        assertEquals(Set.of("Parent", "Child"), captor.getValue().getCategoryNames());
+    }
+}
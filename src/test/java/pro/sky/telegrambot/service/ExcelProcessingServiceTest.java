@@ -4,6 +4,7 @@ import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,17 +15,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import pro.sky.telegrambot.exception.CategoryTreeIsEmptyException;
 import pro.sky.telegrambot.exception.InvalidExcelFormatException;
 import pro.sky.telegrambot.model.Category;
+import pro.sky.telegrambot.model.CategoryTreeRow;
 import pro.sky.telegrambot.repository.CategoryRepository;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static pro.sky.telegrambot.model.CategoryTreeRows.row;
 
 /**
  * Unit-тесты для {@link ExcelProcessingServiceImpl}, проверяющие работу с Excel-файлами категорий.
@@ -47,9 +49,9 @@ public class ExcelProcessingServiceTest {
     private ExcelProcessingServiceImpl excelProcessingServiceTest;
 
     /**
-     * Тестовый список категорий.
+     * Тестовые строки дерева категорий.
      */
-    private List<Category> testCategories;
+    private List<CategoryTreeRow> testRows;
 
     /**
      * Инициализация тестовых данных перед каждым тестом.
@@ -63,25 +65,10 @@ public class ExcelProcessingServiceTest {
      */
     @BeforeEach
     public void setUp() {
-        testCategories = new ArrayList<>();
-        Category parent = new Category("Parent");
-        Category child1 = new Category("Child 1");
-        Category child2 = new Category("Child 2");
-
-        parent.setId(1L);
-        child1.setId(2L);
-        child2.setId(3L);
-
-        testCategories.add(parent);
-        testCategories.add(child1);
-        testCategories.add(child2);
-
-        child1.setParent(parent);
-        child2.setParent(parent);
-
-        parent.getChildren().add(child1);
-        parent.getChildren().add(child2);
-
+        testRows = List.of(
+                row(1L, "Parent", null, 0),
+                row(2L, "Child 1", 1L, 1),
+                row(3L, "Child 2", 1L, 1));
     }
 
     /**
@@ -93,6 +80,7 @@ public class ExcelProcessingServiceTest {
      *   <li>Наличие всех обязательных колонок</li>
      *   <li>Правильность данных в файле</li>
      *   <li>Соответствие иерархии категорий</li>
+     *   <li>Ширину столбцов по самому длинному значению</li>
      * </ul>
      *
      * @throws IOException если возникла ошибка при работе с файлом
@@ -100,9 +88,11 @@ public class ExcelProcessingServiceTest {
     @Test
     public void generateExcelCategoriesTreeNotEmpty() throws IOException {
 
-        when(categoryRepositoryMock.findAll()).thenReturn(testCategories);
+        when(categoryRepositoryMock.streamTree()).thenReturn(testRows.stream());
 
-        byte[] result = excelProcessingServiceTest.generateCategoriesExcel();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        excelProcessingServiceTest.writeCategoriesExcel(outputStream);
+        byte[] result = outputStream.toByteArray();
 
         assertNotNull(result);
         assertTrue(result.length > 0);
@@ -125,6 +115,9 @@ public class ExcelProcessingServiceTest {
             assertEquals(2L, sheet.getRow(2).getCell(0).getNumericCellValue());
             assertEquals("Child 1", sheet.getRow(2).getCell(1).getStringCellValue());
             assertEquals("1", sheet.getRow(2).getCell(2).getStringCellValue());
+
+            assertEquals(("id_Категории".length() + 3) * 256, sheet.getColumnWidth(0));
+            assertEquals(("Имя_Категории".length() + 3) * 256, sheet.getColumnWidth(1));
         }
     }
 
@@ -142,12 +135,12 @@ public class ExcelProcessingServiceTest {
     public void generateExcelCategoriesTreeEmpty() {
         String messageException = "Дерево категорий пусто.";
 
-        when(categoryRepositoryMock.findAll()).thenReturn(Collections.emptyList());
+        when(categoryRepositoryMock.streamTree()).thenReturn(Stream.empty());
 
         Exception exception = assertThrows(CategoryTreeIsEmptyException.class,
-                () -> excelProcessingServiceTest.generateCategoriesExcel());
+                () -> excelProcessingServiceTest.writeCategoriesExcel(new ByteArrayOutputStream()));
 
-        verify(categoryRepositoryMock).findAll();
+        verify(categoryRepositoryMock).streamTree();
         assertEquals(messageException, exception.getMessage());
     }
 
@@ -208,6 +201,60 @@ public class ExcelProcessingServiceTest {
                 () -> excelProcessingServiceTest.parseExcel(excelContent));
     }
 
+    /**
+     * Тестирует потоковый парсинг большого листа.
+     * <p>
+     * Проверяет:
+     * <ul>
+     *   <li>Чтение ячеек со строками, записанными непосредственно в лист (inline strings)</li>
+     *   <li>Идентификаторы родителей, записанные строкой</li>
+     *   <li>Восстановление родительских связей для всех строк</li>
+     * </ul>
+     *
+     * @throws IOException если возникла ошибка при работе с файлом
+     */
+    @Test
+    public void parseExcelLargeStreamedDocument() throws IOException {
+        int size = 50_000;
+        byte[] excelContent;
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet();
+            Row headerRow = sheet.createRow(0);
+            headerRow.createCell(0).setCellValue("id");
+            headerRow.createCell(1).setCellValue("name");
+            headerRow.createCell(2).setCellValue("parent_id");
+            for (int i = 1; i <= size; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellValue("Категория " + i);
+                row.createCell(2).setCellValue(i == 1 ? "" : String.valueOf(i / 2));
+            }
+            workbook.write(out);
+            workbook.dispose();
+            excelContent = out.toByteArray();
+        }
+
+        List<Category> result = excelProcessingServiceTest.parseExcel(excelContent);
+
+        assertEquals(size, result.size());
+        assertNull(result.get(0).getParent());
+        Category last = result.get(size - 1);
+        assertEquals("Категория " + size, last.getName());
+        assertSame(result.get(size / 2 - 1), last.getParent());
+    }
+
+    /**
+     * Тестирует парсинг файла, который не является книгой Excel.
+     * <p>
+     * Ожидаемый результат: выброс исключения {@link InvalidExcelFormatException}.
+     */
+    @Test
+    public void parseExcelNotExcelFile() {
+        assertThrows(InvalidExcelFormatException.class,
+                () -> excelProcessingServiceTest.parseExcel("id;name".getBytes()));
+    }
+
     /**
      * Создает тестовый Excel-файл с корректными данными.
      *
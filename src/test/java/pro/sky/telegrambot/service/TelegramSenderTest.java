@@ -0,0 +1,298 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.Callback;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.ResponseParameters;
+import com.pengrad.telegrambot.model.request.InlineKeyboardMarkup;
+import com.pengrad.telegrambot.request.AnswerCallbackQuery;
+import com.pengrad.telegrambot.request.BaseRequest;
+import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.BaseResponse;
+import com.pengrad.telegrambot.response.SendResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-тесты для {@link TelegramSenderImpl}, проверяющие асинхронную отправку запросов.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Получение ответа через асинхронный вызов Telegram API</li>
+ *   <li>Последовательную отправку в один чат и параллельную в разные чаты</li>
+ *   <li>Ограничение частоты отправки в один чат</li>
+ *   <li>Повтор запроса после ответа 429 с паузой retry_after</li>
+ *   <li>Повтор нескольких одновременных запросов без чата</li>
+ *   <li>Объединение текстовых сообщений одного чата</li>
+ *   <li>Продолжение отправки после ошибки при подготовке запроса</li>
+ * </ul>
+ */
+public class TelegramSenderTest {
+
+    private final TelegramBot telegramBotMock = mock(TelegramBot.class);
+    private final BlockingQueue<Call> calls = new LinkedBlockingQueue<>();
+    private TelegramSenderImpl sender;
+
+    @AfterEach
+    public void tearDown() {
+        sender.shutdown();
+    }
+
+    /**
+     * Тестирует получение ответа Telegram через результат отправки.
+     */
+    @Test
+    public void sendCompletesWithResponse() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+        SendResponse response = response(true, 200, null);
+
+        CompletableFuture<SendResponse> result = sender.send(new SendMessage(1L, "Test"));
+        calls.poll(5, TimeUnit.SECONDS).respond(response);
+
+        assertSame(response, result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, sender.queueDepth());
+    }
+
+    /**
+     * Тестирует порядок отправки.
+     * <p>
+     * Ожидаемый результат: второй запрос в чат отправляется только после ответа на первый,
+     * а запрос в другой чат отправляется, не дожидаясь этого ответа.
+     */
+    @Test
+    public void sendSerializesRequestsOfOneChat() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+
+        sender.send(new SendMessage(1L, "first"));
+        Call first = calls.poll(5, TimeUnit.SECONDS);
+        CompletableFuture<SendResponse> second = sender.send(new SendMessage(1L, "second"));
+        sender.send(new SendMessage(2L, "other"));
+
+        List<String> sent = new ArrayList<>();
+        Call other = calls.poll(5, TimeUnit.SECONDS);
+        sent.add(text(first));
+        sent.add(text(other));
+        assertNull(calls.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, sender.queueDepth());
+
+        first.respond(response(true, 200, null));
+        Call next = calls.poll(5, TimeUnit.SECONDS);
+        sent.add(text(next));
+        next.respond(response(true, 200, null));
+
+        assertEquals(List.of("first", "other", "second"), sent);
+        assertTrue(second.get(5, TimeUnit.SECONDS).isOk());
+    }
+
+    /**
+     * Тестирует ограничение частоты отправки в один чат.
+     * <p>
+     * Ожидаемый результат: при лимите 5 запросов в секунду без всплеска
+     * второй запрос отправляется не раньше чем через 200 мс после первого.
+     */
+    @Test
+    public void sendLimitsChatRate() throws Exception {
+        sender = createSender(30, 5, 1, 0);
+
+        sender.send(new SendMessage(1L, "first"));
+        Call first = calls.poll(5, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        sender.send(new SendMessage(1L, "second"));
+        first.respond(response(true, 200, null));
+
+        assertNotNull(calls.poll(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    /**
+     * Тестирует повтор запроса после ответа 429.
+     * <p>
+     * Ожидаемый результат: запрос повторяется не раньше чем через retry_after секунд,
+     * а результат отправки содержит успешный ответ повторной попытки.
+     */
+    @Test
+    public void sendRetriesAfterTooManyRequests() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+        SendResponse ok = response(true, 200, null);
+
+        CompletableFuture<SendResponse> result = sender.send(new SendMessage(1L, "Test"));
+        calls.poll(5, TimeUnit.SECONDS).respond(response(false, 429, 1));
+        long start = System.nanoTime();
+        calls.poll(5, TimeUnit.SECONDS).respond(ok);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(900));
+        assertSame(ok, result.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Тестирует повторные ответы 429 на запросы без чата, отправленные одновременно.
+     * <p>
+     * Ожидаемый результат: увеличение паузы очереди без чата не нарушает порядок отложенных очередей,
+     * и запрос в чат с меньшей паузой повторяется раньше.
+     */
+    @Test
+    public void sendRetriesUnboundRequestsWithoutBlockingOtherChats() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+
+        sender.send(new AnswerCallbackQuery("first"));
+        sender.send(new AnswerCallbackQuery("second"));
+        Call firstUnbound = calls.poll(5, TimeUnit.SECONDS);
+        Call secondUnbound = calls.poll(5, TimeUnit.SECONDS);
+        sender.send(new SendMessage(1L, "chat"));
+        Call chat = calls.poll(5, TimeUnit.SECONDS);
+
+        firstUnbound.respond(response(false, 429, 1));
+        chat.respond(response(false, 429, 2));
+        secondUnbound.respond(response(false, 429, 3));
+
+        Call retried = calls.poll(5, TimeUnit.SECONDS);
+        assertEquals("chat", text(retried));
+    }
+
+    /**
+     * Тестирует объединение сообщений, накопившихся за время отправки предыдущего.
+     * <p>
+     * Ожидаемый результат: простые текстовые сообщения объединяются в одно, сообщение с клавиатурой
+     * отправляется отдельно, а результаты всех объединенных сообщений содержат ответ на общее сообщение.
+     */
+    @Test
+    public void sendCoalescesQueuedMessages() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+
+        sender.send(new SendMessage(1L, "first"));
+        Call first = calls.poll(5, TimeUnit.SECONDS);
+        CompletableFuture<SendResponse> second = sender.send(new SendMessage(1L, "second"));
+        CompletableFuture<SendResponse> third = sender.send(new SendMessage(1L, "third"));
+        sender.send(new SendMessage(1L, "keyboard").replyMarkup(new InlineKeyboardMarkup()));
+        assertEquals(3, sender.queueDepth());
+
+        first.respond(response(true, 200, null));
+        Call merged = calls.poll(5, TimeUnit.SECONDS);
+        SendResponse response = response(true, 200, null);
+        merged.respond(response);
+        Call keyboard = calls.poll(5, TimeUnit.SECONDS);
+
+        assertEquals("second\n\nthird", text(merged));
+        assertEquals(1L, merged.request().getParameters().get("chat_id"));
+        assertSame(response, second.get(5, TimeUnit.SECONDS));
+        assertSame(response, third.get(5, TimeUnit.SECONDS));
+        assertEquals("keyboard", text(keyboard));
+    }
+
+    /**
+     * Тестирует объединение серии ответов, пришедших в окне ожидания, с учетом лимита длины сообщения.
+     * <p>
+     * Ожидаемый результат: два коротких сообщения отправляются одним, а сообщение,
+     * превышающее вместе с ними лимит Telegram, отправляется отдельно.
+     */
+    @Test
+    public void sendCoalescesBurstWithinWindow() throws Exception {
+        sender = createSender(30, 30, 30, 200);
+        String large = "x".repeat(TelegramSenderImpl.MAX_MESSAGE_LENGTH - 5);
+
+        sender.send(new SendMessage(1L, "a"));
+        sender.send(new SendMessage(1L, "b"));
+        sender.send(new SendMessage(1L, large));
+
+        Call merged = calls.poll(5, TimeUnit.SECONDS);
+        assertEquals("a\n\nb", text(merged));
+        merged.respond(response(true, 200, null));
+        assertEquals(large, text(calls.poll(5, TimeUnit.SECONDS)));
+    }
+
+    /**
+     * Тестирует отправку после запроса, который выбрасывает исключение в потоке отправки.
+     * <p>
+     * Ожидаемый результат: ошибочный запрос завершается с ошибкой, а следующие сообщения
+     * того же и другого чата доставляются.
+     */
+    @Test
+    public void sendContinuesAfterFailingRequest() throws Exception {
+        sender = createSender(30, 30, 30, 0);
+
+        CompletableFuture<SendResponse> failing = sender.send(new FailingMessage(1L));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        sender.send(new SendMessage(1L, "after"));
+        sender.send(new SendMessage(2L, "other"));
+
+        List<String> sent = new ArrayList<>();
+        sent.add(text(calls.poll(5, TimeUnit.SECONDS)));
+        sent.add(text(calls.poll(5, TimeUnit.SECONDS)));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(List.of("after", "other"), sent);
+        verify(telegramBotMock, times(2)).execute(any(BaseRequest.class), any(Callback.class));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TelegramSenderImpl createSender(double globalRate, double chatRate, double chatBurst,
+                                            long coalesceWindowMs) {
+        doAnswer(invocation -> {
+            calls.add(new Call(invocation.getArgument(0), invocation.getArgument(1)));
+            return null;
+        }).when(telegramBotMock).execute(any(BaseRequest.class), any(Callback.class));
+        TelegramSenderImpl created = new TelegramSenderImpl(telegramBotMock, globalRate, chatRate, chatBurst,
+                coalesceWindowMs);
+        created.start();
+        return created;
+    }
+
+    private static SendResponse response(boolean ok, int errorCode, Integer retryAfter) {
+        SendResponse response = mock(SendResponse.class);
+        lenient().when(response.isOk()).thenReturn(ok);
+        lenient().when(response.errorCode()).thenReturn(errorCode);
+        if (retryAfter != null) {
+            ResponseParameters parameters = mock(ResponseParameters.class);
+            when(parameters.retryAfter()).thenReturn(retryAfter);
+            when(response.parameters()).thenReturn(parameters);
+        }
+        return response;
+    }
+
+    private static String text(Call call) {
+        return (String) call.request().getParameters().get("text");
+    }
+
+    /**
+     * Сообщение, параметры которого можно прочитать только при постановке в очередь.
+     */
+    private static final class FailingMessage extends SendMessage {
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private FailingMessage(long chatId) {
+            super(chatId, "failing");
+        }
+
+        @Override
+        public Map<String, Object> getParameters() {
+            if (reads.incrementAndGet() > 1) {
+                throw new IllegalStateException("broken request");
+            }
+            return super.getParameters();
+        }
+    }
+
+    /**
+     * Перехваченный асинхронный вызов Telegram API.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private record Call(BaseRequest request, Callback callback) {
+
+        void respond(BaseResponse response) {
+            callback.onResponse(request, response);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.Update;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static pro.sky.telegrambot.service.VirtualThreadUpdateDispatcherTest.createUpdate;
+
+/**
+ * Сравнение задержки и пропускной способности обработки обновлений пулом потоков
+ * и потоком на обновление при тысячах одновременно активных чатов.
+ * <p>
+ * Обработка каждого обновления имитирует ожидание базы данных и Telegram API.
+ * Запускается только при заданной переменной окружения {@code UPDATE_DISPATCHER_BENCHMARK=true}.
+ * На Java до 21 виртуальные потоки недоступны, и режим {@code virtual} сравнивается в виде пула
+ * из {@link #FALLBACK_THREADS} обычных потоков; используемый исполнитель выводится в результатах.
+ */
+@EnabledIfEnvironmentVariable(named = "UPDATE_DISPATCHER_BENCHMARK", matches = "true")
+public class UpdateDispatcherBenchmarkTest {
+
+    private static final int CHATS = 5_000;
+    private static final int UPDATES_PER_CHAT = 4;
+    private static final long BLOCKING_MILLIS = 20;
+    private static final int POOL_SIZE = 64;
+    private static final int FALLBACK_THREADS = 1_000;
+
+    /**
+     * Сравнивает 99-й перцентиль задержки и пропускную способность обоих режимов.
+     */
+    @Test
+    public void compareDispatchModes() throws InterruptedException {
+        Result pool = run("Пул потоков", commandService ->
+                new UpdateDispatcherImpl(commandService, POOL_SIZE, CHATS * UPDATES_PER_CHAT));
+        Result perUpdate = run("Режим virtual", commandService ->
+                new VirtualThreadUpdateDispatcher(commandService, CHATS * UPDATES_PER_CHAT, FALLBACK_THREADS));
+
+        assertTrue(perUpdate.throughput() > pool.throughput(),
+                "режим virtual: " + perUpdate + ", пул потоков: " + pool);
+    }
+
+    private Result run(String title, Function<CommandService, UpdateDispatcher> factory)
+            throws InterruptedException {
+        int total = CHATS * UPDATES_PER_CHAT;
+        long[] submitted = new long[total];
+        long[] latencies = new long[total];
+        CountDownLatch done = new CountDownLatch(total);
+        UpdateDispatcher dispatcher = factory.apply(update -> {
+            try {
+                Thread.sleep(BLOCKING_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latencies[update.updateId()] = System.nanoTime() - submitted[update.updateId()];
+            done.countDown();
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            Update update = createUpdate(i, i % CHATS);
+            submitted[i] = System.nanoTime();
+            dispatcher.dispatch(update);
+        }
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        Result result = new Result(latencies[(int) (total * 0.99) - 1] / 1e6, total / (elapsed / 1e9));
+        if (dispatcher instanceof VirtualThreadUpdateDispatcher virtual) {
+            title += virtual.usesVirtualThreads() ? " (виртуальные потоки)"
+                    : " (пул из " + FALLBACK_THREADS + " обычных потоков)";
+        }
+        System.out.printf("%s: p99 %.1f мс, %.0f обновлений/с%n", title, result.p99Millis(), result.throughput());
+        if (dispatcher instanceof UpdateDispatcherImpl sharded) {
+            sharded.shutdown();
+        } else if (dispatcher instanceof VirtualThreadUpdateDispatcher virtual) {
+            virtual.shutdown();
+        }
+        return result;
+    }
+
+    private record Result(double p99Millis, double throughput) {
+    }
+}
@@ -0,0 +1,136 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.Chat;
+import com.pengrad.telegrambot.model.Message;
+import com.pengrad.telegrambot.model.Update;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Unit-тесты для {@link UpdateDispatcherImpl}, проверяющие параллельную обработку обновлений.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Сохранение порядка обновлений одного чата</li>
+ *   <li>Обработку других чатов, пока один чат занят медленной командой</li>
+ *   <li>Продолжение обработки после ошибки</li>
+ * </ul>
+ */
+public class UpdateDispatcherTest {
+
+    private UpdateDispatcherImpl dispatcher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Тестирует сохранение порядка обновлений каждого чата при параллельной обработке.
+     * <p>
+     * Ожидаемый результат: обновления каждого чата обработаны в порядке поступления,
+     * несмотря на маленькую очередь обработчиков.
+     */
+    @Test
+    public void dispatchKeepsPerChatOrder() throws InterruptedException {
+        int chats = 8;
+        int updatesPerChat = 200;
+        List<List<Integer>> processed = new ArrayList<>();
+        for (int chat = 0; chat < chats; chat++) {
+            processed.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        CountDownLatch done = new CountDownLatch(chats * updatesPerChat);
+        dispatcher = new UpdateDispatcherImpl(update -> {
+            processed.get(update.message().chat().id().intValue()).add(update.updateId());
+            done.countDown();
+        }, 4, 2);
+
+        for (int i = 0; i < updatesPerChat; i++) {
+            for (int chat = 0; chat < chats; chat++) {
+                dispatcher.dispatch(createUpdate(i, chat));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> chatUpdates : processed) {
+            assertEquals(updatesPerChat, chatUpdates.size());
+            for (int i = 0; i < updatesPerChat; i++) {
+                assertEquals(i, chatUpdates.get(i));
+            }
+        }
+    }
+
+    /**
+     * Тестирует обработку другого чата, пока обработчик первого чата занят.
+     * <p>
+     * Ожидаемый результат: обновление второго чата обработано до завершения медленной команды,
+     * а следующее обновление медленного чата - только после неё.
+     */
+    @Test
+    public void dispatchDoesNotBlockOtherChats() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherChat = new CountDownLatch(1);
+        CountDownLatch slowChat = new CountDownLatch(2);
+        dispatcher = new UpdateDispatcherImpl(update -> {
+            if (update.message().chat().id() == 0L) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                slowChat.countDown();
+            } else {
+                otherChat.countDown();
+            }
+        }, 2, 10);
+
+        dispatcher.dispatch(createUpdate(1, 0));
+        dispatcher.dispatch(createUpdate(2, 0));
+        dispatcher.dispatch(createUpdate(3, 1));
+
+        assertTrue(otherChat.await(5, TimeUnit.SECONDS));
+        assertEquals(2, slowChat.getCount());
+        release.countDown();
+        assertTrue(slowChat.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Тестирует продолжение обработки чата после ошибки в обработке обновления.
+     */
+    @Test
+    public void dispatchContinuesAfterFailure() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(1);
+        dispatcher = new UpdateDispatcherImpl(update -> {
+            if (update.updateId() == 1) {
+                throw new IllegalStateException("Тестовая ошибка");
+            }
+            processed.countDown();
+        }, 1, 10);
+
+        dispatcher.dispatch(createUpdate(1, 5));
+        dispatcher.dispatch(createUpdate(2, 5));
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+    }
+
+    private static Update createUpdate(int updateId, long chatId) {
+        Chat chat = new Chat();
+        setField(chat, "id", chatId);
+        Message message = new Message();
+        setField(message, "chat", chat);
+        Update update = new Update();
+        setField(update, "update_id", updateId);
+        setField(update, "message", message);
+        return update;
+    }
+}
@@ -0,0 +1,190 @@
+package pro.sky.telegrambot.service;
+
+import com.pengrad.telegrambot.model.Chat;
+import com.pengrad.telegrambot.model.Message;
+import com.pengrad.telegrambot.model.Update;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Unit-тесты для {@link VirtualThreadUpdateDispatcher}, проверяющие обработку обновлений в потоке на обновление.
+ * <p>
+ * Тесты покрывают следующие сценарии:
+ * <ul>
+ *   <li>Сохранение порядка обновлений одного чата</li>
+ *   <li>Одновременную обработку обновлений разных чатов</li>
+ *   <li>Продолжение цепочки чата после ошибки и после остановки обработки</li>
+ * </ul>
+ */
+public class VirtualThreadUpdateDispatcherTest {
+
+    private VirtualThreadUpdateDispatcher dispatcher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Тестирует сохранение порядка обновлений каждого чата.
+     * <p>
+     * Ожидаемый результат: обновления каждого чата обработаны в порядке поступления,
+     * несмотря на ограничение числа необработанных обновлений.
+     */
+    @Test
+    public void dispatchKeepsPerChatOrder() throws InterruptedException {
+        int chats = 8;
+        int updatesPerChat = 200;
+        List<List<Integer>> processed = new ArrayList<>();
+        for (int chat = 0; chat < chats; chat++) {
+            processed.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        CountDownLatch done = new CountDownLatch(chats * updatesPerChat);
+        dispatcher = new VirtualThreadUpdateDispatcher(update -> {
+            processed.get(update.message().chat().id().intValue()).add(update.updateId());
+            done.countDown();
+        }, 16, 16);
+
+        for (int i = 0; i < updatesPerChat; i++) {
+            for (int chat = 0; chat < chats; chat++) {
+                dispatcher.dispatch(createUpdate(i, chat));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> chatUpdates : processed) {
+            assertEquals(updatesPerChat, chatUpdates.size());
+            for (int i = 0; i < updatesPerChat; i++) {
+                assertEquals(i, chatUpdates.get(i));
+            }
+        }
+    }
+
+    /**
+     * Тестирует одновременную обработку разных чатов.
+     * <p>
+     * Ожидаемый результат: обновления всех чатов обрабатываются одновременно,
+     * а не ожидают друг друга в ограниченном пуле потоков.
+     */
+    @Test
+    public void dispatchRunsChatsConcurrently() throws InterruptedException {
+        int chats = 50;
+        CountDownLatch started = new CountDownLatch(chats);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        dispatcher = new VirtualThreadUpdateDispatcher(update -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.incrementAndGet();
+        }, chats, chats);
+
+        for (int chat = 0; chat < chats; chat++) {
+            dispatcher.dispatch(createUpdate(chat, chat));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(0, finished.get());
+        release.countDown();
+    }
+
+    /**
+     * Тестирует обработку без виртуальных потоков.
+     * <p>
+     * Ожидаемый результат: на Java до 21 одновременно обрабатывается не больше обновлений,
+     * чем потоков в запасном пуле.
+     */
+    @Test
+    public void fallbackPoolBoundsConcurrency() throws InterruptedException {
+        int threads = 4;
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        dispatcher = new VirtualThreadUpdateDispatcher(update -> {
+            running.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, threads);
+        assumeFalse(dispatcher.usesVirtualThreads());
+
+        for (int chat = 0; chat < 10; chat++) {
+            dispatcher.dispatch(createUpdate(chat, chat));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(threads, running.get());
+        release.countDown();
+    }
+
+    /**
+     * Тестирует цепочку обновлений чата после ошибки обработки.
+     * <p>
+     * Ожидаемый результат: ошибка при обработке обновления не мешает обработать следующее обновление того же чата.
+     */
+    @Test
+    public void dispatchContinuesChainAfterError() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(1);
+        dispatcher = new VirtualThreadUpdateDispatcher(update -> {
+            if (update.updateId() == 0) {
+                throw new AssertionError("Ошибка обработки");
+            }
+            processed.countDown();
+        }, 1, 16);
+
+        dispatcher.dispatch(createUpdate(0, 1));
+        dispatcher.dispatch(createUpdate(1, 1));
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Тестирует прием обновлений после остановки обработки.
+     * <p>
+     * Ожидаемый результат: отклоненные обновления освобождают место, и прием следующих обновлений не блокируется.
+     */
+    @Test
+    public void dispatchReleasesCapacityWhenRejected() throws InterruptedException {
+        dispatcher = new VirtualThreadUpdateDispatcher(update -> {
+        }, 1, 16);
+        dispatcher.shutdown();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 3; i++) {
+                dispatcher.dispatch(createUpdate(i, 1));
+            }
+        });
+    }
+
+    static Update createUpdate(int updateId, long chatId) {
+        Chat chat = new Chat();
+        setField(chat, "id", chatId);
+        Message message = new Message();
+        setField(message, "chat", chat);
+        Update update = new Update();
+        setField(update, "update_id", updateId);
+        setField(update, "message", message);
+        return update;
+    }
+}